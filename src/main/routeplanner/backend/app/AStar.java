@@ -0,0 +1,302 @@
+package routeplanner.backend.app;
+
+import routeplanner.backend.model.*;
+
+/*
+ * Implementation of the A* algorithm for point-to-point requests
+ *   The queue is ordered by distance from the start plus a lower bound of the
+ *   distance to the target. The bound is the great-circle distance multiplied
+ *   by the minimal cost per distance of all edges (calibrated in 'prepare()'),
+ *   or the bound of the landmarks (ALT). Both never overestimate.
+ *   The great-circle bound is consistent (rounded down from a metric with a factor
+ *   below the cost per distance of every edge), so every node is finished once.
+ *   The landmark bound is not consistent in general, so a finished node is
+ *   reopened if a shorter path to it is found.
+ */
+public class AStar {
+
+	// Calculate shortest path from start to target, return the distance (-1 if unreachable)
+	public int calculate(int start, int target) {
+
+		_target = target;
+
+		prepareTarget(target);
+
+		setPrevious(start, 0, -1);
+		_queue.insert(start, bound(start));
+
+		while (!_queue.isEmpty()) {
+
+			// Remove next node from queue
+			int currentId = _queue.poll();
+			int currentDistance = distance(currentId);
+
+			// Skip node if already finished
+			if (currentDistance < 0)
+				continue;
+
+			// Mark node finished
+			setDistance(currentId, -currentDistance);
+			_finishedCount++;
+
+			if (currentId == target)
+				return currentDistance;
+
+
+			for (_edges.reset(currentId); _edges.next(); ) {
+
+				// Check if there is an unknown (shorter) path (also to finished nodes)
+				int neighbor = _edges.target();
+				int newDistance = _edges.cost() + currentDistance;
+
+				if (newDistance < Math.abs(distance(neighbor))) {
+
+					setPrevious(neighbor, newDistance, currentId);
+
+					// Add node with new distance and bound to queue
+					_queue.insert(neighbor, newDistance + bound(neighbor));
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	// Get the calculated path (into the cleared buffer, only the nodes on the path are set)
+	public void getResult(PathBuffer result) {
+
+		// Target not finished
+		if (distance(_target) > 0)
+			return;
+
+		for (int node = _target; node != -1; node = previous(node))
+			result.set(node, -distance(node), previous(node));
+	}
+
+	// Number of finished nodes since the last reset
+	public int finishedCount() {
+		return _finishedCount;
+	}
+
+	// Minimal cost per meter of the edges (factor of the bound)
+	public double costFactor() {
+		return _costFactor / earthRadius;
+	}
+
+	public AStar() {
+		this(IntQueue.Type.BINARY);
+	}
+
+	// Engine with the type of the priority queue
+	public AStar(IntQueue.Type queueType) {
+		_queueType = queueType;
+	}
+
+	// Copy of a prepared engine (shares the prepared data, for calculation on another thread)
+	public AStar(AStar prepared) {
+
+		_queueType = prepared._queueType;
+		_graph = prepared._graph;
+		_landmarks = prepared._landmarks;
+		_costFactor = prepared._costFactor;
+
+		allocate();
+	}
+
+	// Prepare data for calculation with the bounds of the landmarks
+	public void prepare(GraphStore graph, Landmarks landmarks) {
+
+		_graph = graph;
+		_landmarks = landmarks;
+
+		allocate();
+	}
+
+	// Prepare data for calculation with the great-circle bound
+	public void prepare(GraphStore graph) {
+
+		_graph = graph;
+		_landmarks = null;
+
+		allocate();
+
+		// Calibrate factor with the minimal cost per distance of all edges (with different coordinates)
+		double factor = Double.POSITIVE_INFINITY;
+
+		for (int i = 0; i < graph.nodeCount(); i++) {
+			for (_edges.reset(i); _edges.next(); ) {
+
+				double distance = greatCircle(i, _edges.target());
+
+				if (distance > 0)
+					factor = Math.min(factor, _edges.cost() / distance);
+			}
+		}
+
+		// Note: Reduced slightly to compensate rounding errors of the distances
+		_costFactor = factor == Double.POSITIVE_INFINITY ? 0 : factor * (1 - boundTolerance);
+	}
+
+	// Allocate data for the search
+	private void allocate() {
+
+		_edges = new EdgeCursor(_graph);
+
+		_queue = IntQueue.create(_queueType, _graph.nodeCount());
+
+		_data = new int[_graph.nodeCount() * 2];
+		_bounds = new int[_graph.nodeCount()];
+		_touched = new int[_graph.nodeCount()];
+
+		for (int i = 0; i < _graph.nodeCount(); i++)
+			clear(i);
+
+		_touchedCount = 0;
+
+		_targetDistances = _landmarks == null ? null : new int[_landmarks.count() * 2];
+	}
+
+	// Reset distances and path for new calculation
+	//   Note: Only the nodes reached by the last calculation are reset
+	public void reset() {
+
+		_queue.clear();
+
+		for (int i = 0; i < _touchedCount; i++)
+			clear(_touched[i]);
+
+		_touchedCount = 0;
+		_finishedCount = 0;
+	}
+
+	// Lower bound of the distance from the node to the target
+	//   Note: The great-circle bound is rounded down, so it stays consistent for integer costs
+	private int bound(int node) {
+
+		if (_bounds[node] < 0 && _landmarks != null) {
+
+			_bounds[node] = _landmarks.bound(node, _targetDistances);
+
+		} else if (_bounds[node] < 0) {
+
+			double latitude = Math.toRadians(_graph.latitude(node));
+			double distance = haversine(_targetLatitude, _targetLongitude, _targetCos, latitude, Math.toRadians(_graph.longitude(node)));
+
+			_bounds[node] = (int)Math.min(Integer.MAX_VALUE / 2, Math.floor(distance * _costFactor));
+		}
+
+		return _bounds[node];
+	}
+
+	// Prepare calculation of the bounds to the target
+	private void prepareTarget(int target) {
+
+		if (_landmarks != null) {
+
+			_landmarks.distances(target, _targetDistances);
+			return;
+		}
+
+		_targetLatitude = Math.toRadians(_graph.latitude(target));
+		_targetLongitude = Math.toRadians(_graph.longitude(target));
+		_targetCos = Math.cos(_targetLatitude);
+	}
+
+	// Great-circle distance between two nodes (on the unit sphere, haversine formula)
+	private double greatCircle(int a, int b) {
+
+		double latitude = Math.toRadians(_graph.latitude(a));
+
+		return haversine(latitude, Math.toRadians(_graph.longitude(a)), Math.cos(latitude),
+			Math.toRadians(_graph.latitude(b)), Math.toRadians(_graph.longitude(b)));
+	}
+
+	// Haversine formula (coordinates in radians, 'cosA' is the cosine of 'latA')
+	private static double haversine(double latA, double lonA, double cosA, double latB, double lonB) {
+
+		double sinLat = Math.sin((latB - latA) / 2);
+		double sinLon = Math.sin((lonB - lonA) / 2);
+
+		double h = sinLat * sinLat + cosA * Math.cos(latB) * sinLon * sinLon;
+
+		return 2 * Math.asin(Math.sqrt(Math.min(1, h)));
+	}
+
+	private int distance(int node) {
+		return _data[node * 2];
+	}
+
+	private void setDistance(int node, int distance) {
+		_data[node * 2] = distance;
+	}
+
+	private int previous(int node) {
+		return _data[node * 2 + 1];
+	}
+
+	// Set distance and previous node (and remember the node if it is reached the first time)
+	private void setPrevious(int node, int distance, int previous) {
+
+		if (_data[node * 2] == Integer.MAX_VALUE)
+			_touched[_touchedCount++] = node;
+
+		_data[node * 2] = distance;
+		_data[node * 2 + 1] = previous;
+	}
+
+	// Set node not reached (and its bound not calculated)
+	private void clear(int node) {
+		_data[node * 2] = Integer.MAX_VALUE;
+		_data[node * 2 + 1] = -1;
+		_bounds[node] = -1;
+	}
+
+
+	// Mean earth radius in meters
+	private static final double earthRadius = 6371000;
+
+	// Relative reduction of the calibrated factor
+	private static final double boundTolerance = 1e-6;
+
+	// Graph structure
+	private GraphStore _graph;
+
+	// Iterator over the edges of the current node
+	private EdgeCursor _edges;
+
+	// Distance and previous node of each node
+	//   Note: Finished nodes have a negative distance (like in 'Dijkstra'),
+	//   a reopened node is not finished again until it is removed from the queue
+	private int[] _data;
+
+	// Bound of each node to the target (-1 if not calculated yet)
+	private int[] _bounds;
+
+	// Nodes reached since the last reset
+	private int[] _touched;
+	private int _touchedCount;
+
+	// Type of the priority queue
+	private IntQueue.Type _queueType;
+
+	// Priority queue for non-finished nodes
+	private IntQueue _queue;
+
+	// Target of the last calculation and its coordinates
+	private int _target;
+	private double _targetLatitude;
+	private double _targetLongitude;
+	private double _targetCos;
+
+	// Landmarks for the bound (null if the great-circle bound is used)
+	private Landmarks _landmarks;
+
+	// Distances of the target from/to the landmarks
+	private int[] _targetDistances;
+
+	// Factor of the great-circle distance (on the unit sphere) for the bound
+	private double _costFactor;
+
+	// Number of finished nodes
+	private int _finishedCount;
+}
@@ -1,11 +1,24 @@
 package routeplanner.backend.app;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
+import routeplanner.backend.model.FixedPoint;
+import routeplanner.backend.model.GraphStore;
+import routeplanner.backend.model.IntQueue;
 import routeplanner.backend.model.Node;
+import routeplanner.backend.model.PathBuffer;
+import routeplanner.backend.model.PathCursor;
+import routeplanner.backend.model.PathResult;
 
 /*
  * Implementation of the program functions
@@ -26,7 +39,11 @@ public class App {
 		BAD_HEADER(-3),
 		BAD_NODE(-4),
 		BAD_EDGE(-5),
-		BAD_REQUEST(-6);
+		BAD_REQUEST(-6),
+		BAD_SNAPSHOT(-7),
+		BAD_LANDMARKS(-8),
+		BAD_HIERARCHY(-9),
+		BAD_LABELS(-10);
 		
 		private Code(int value) { _value = value; }
 		
@@ -64,59 +81,502 @@ public class App {
 		OTO, // one-to-one
 		OTA, // one-to-all
 		OTM, // one-to-many
+		ATO, // all-to-one
 		NNI, // next-node-iterative
 		NNF, // next-node-fast
 		SRV, // server
 	}
 	
+	/*
+	 * Node orders of the graph
+	 */
+	static enum Order {
+		NONE,
+		
+		HILBERT, // Hilbert curve over the coordinates
+		BFS,     // breadth-first search
+	}
+	
+	/*
+	 * Algorithms for one-to-one calculation
+	 */
+	static enum Algorithm {
+		DIJKSTRA,      // Dijkstra (stopped at the target)
+		BIDIRECTIONAL, // bidirectional Dijkstra
+		ASTAR,         // A* with great-circle bound
+		ALT,           // A* with landmark bound
+		CH,            // contraction hierarchy
+		HL,            // hub labels
+	}
+	
 	/*
 	 * Parameters for the program execution
 	 */
 	static class Parameters {
 		
-		public BufferedReader structureIn = null;
-		public BufferedReader requestIn = null;
+		public ByteLineReader structureIn = null;
+		public Path structureFile = null;
+		public Path snapshotFile = null;
+		public Path landmarkFile = null;
+		public Path hierarchyFile = null;
+		public Path labelFile = null;
+		public ByteLineReader requestIn = null;
 		public BufferedWriter requestOut = null;
 		public BufferedWriter logOut = null;
 		public Mode mode = Mode.NONE;
+		public Order order = Order.NONE;
+		public Algorithm algorithm = Algorithm.DIJKSTRA;
+		public EnumSet<Algorithm> algorithms = EnumSet.of(Algorithm.DIJKSTRA);
+		public IntQueue.Type queue = IntQueue.Type.BINARY;
+		public EnumMap<Algorithm, IntQueue.Type> queues = new EnumMap<>(Algorithm.class);
 		public int start = -1;
 		public int port = Main.serverPortNumber;
+		public int threads = Main.serverThreadCount;
+		public int landmarkCount = Landmarks.defaultCount;
 		public URL htmlDirectory = Parameters.class.getResource(Main.htmlDirPath);
 		public Logger.Level logLevel = null;
 		public boolean isTolerant = false;
+		public boolean isFixedPoint = false;
+		public boolean isOffHeap = false;
+		public boolean isCompressed = false;
+		public boolean isContracted = false;
 		public boolean printLocation = false;
 		public boolean printDistance = false;
 		public boolean printPath = false;
+		
+		// Priority queue of the algorithm (the queue of all algorithms if none is set for it)
+		public IntQueue.Type queue(Algorithm algorithm) {
+			return queues.getOrDefault(algorithm, queue);
+		}
 	}
 	
 
+	// Result without reached nodes (for unreachable targets)
+	private static final PathResult unreachableResult = new PathResult() {
+		
+		@Override
+		public int distance(int node) {
+			return -1;
+		}
+		
+		@Override
+		public int previous(int node) {
+			return -1;
+		}
+	};
+	
 	// Prepare data for Dijkstra calculation
-	public void prepareDijkstra() {
+	public void prepareDijkstra(Parameters param, Logger logger) throws IOException {
+		
+		_dijkstra = createDijkstra(_graph, param, logger);
+		
+		// Find components to detect unreachable targets
+		_components = new Components(_graph);
+		
+		int[] sizes = new int[_components.count()];
+		int singles = 0;
+		for (int i = 0; i < sizes.length; i++) {
+			
+			sizes[i] = _components.size(i);
+			if (sizes[i] == 1)
+				singles++;
+		}
+		Arrays.sort(sizes);
+		
+		StringBuilder largest = new StringBuilder();
+		for (int i = sizes.length - 1; i >= Math.max(0, sizes.length - 5); i--)
+			largest.append(" " + sizes[i]);
+		
+		logger.info(sizes.length + " strongly connected components (" + singles + " with a single node)");
+		logger.info("  largest:" + largest);
+	}
+	
+	// Prepare data for Dijkstra calculation on the reverse graph
+	public void prepareReverseDijkstra(Parameters param, Logger logger) throws IOException {
+		
+		_reverseDijkstra = createDijkstra(reverseGraph(), param, logger);
+	}
+	
+	// Prepare data for bidirectional Dijkstra calculation
+	//   Note: Contracted chains are not used
+	public void prepareBidirectional(Parameters param) {
+		
+		_bidirectional = new BidirectionalDijkstra(param.queue(Algorithm.BIDIRECTIONAL));
+		_bidirectional.prepare(_graph, reverseGraph());
+	}
+	
+	// Prepare data for A* calculation
+	public void prepareAStar(Parameters param, Logger logger) throws IOException {
+		
+		_aStar = new AStar(param.queue(Algorithm.ASTAR));
+		_aStar.prepare(_graph);
+		
+		logger.info("A* bound: " + _aStar.costFactor() + " cost units per meter");
+	}
+	
+	// Prepare data for A* calculation with landmarks (read from or written to the landmark file)
+	//   Note: The components have to be prepared before ('prepareDijkstra()')
+	public void prepareAlt(Parameters param, Logger logger) throws IOException, FatalFailure {
+		
+		Landmarks landmarks;
+		long startTime, endTime;
+		
+		if (param.landmarkFile != null && Files.exists(param.landmarkFile)) {
+			
+			try {
+				
+				startTime = System.nanoTime();
+				
+				landmarks = Landmarks.read(param.landmarkFile, _graph);
+				
+				endTime = System.nanoTime();
+				
+			} catch (Landmarks.BadLandmarkFileException ex) {
+				
+				logger.error("Bad landmark file provided");
+				logger.info(ex.getMessage());
+				
+				throw new FatalFailure(Code.BAD_LANDMARKS, "Bad landmark file provided");
+			}
+			
+			logger.info(landmarks.count() + " landmarks read in " + (double)(endTime - startTime) / 1000000000 + " seconds");
+			
+		} else {
+			
+			startTime = System.nanoTime();
+			
+			// Start selection in the largest component (no landmarks for an empty graph)
+			int largest = _components.largest();
+			int start = largest < 0 ? -1 : _components.first(largest);
+			
+			try {
+				
+				landmarks = Landmarks.create(_graph, reverseGraph(), start < 0 ? 0 : param.landmarkCount, start);
+				
+			} catch (IllegalArgumentException ex) {
+				
+				logger.error(ex.getMessage());
+				
+				throw new FatalFailure(Code.BAD_PARAMETER, "Too many landmarks provided");
+			}
+			
+			endTime = System.nanoTime();
+			
+			logger.info(landmarks.count() + " landmarks calculated in " + (double)(endTime - startTime) / 1000000000 + " seconds");
+			
+			if (param.landmarkFile != null) {
+				
+				// Write landmarks for the next start
+				landmarks.write(param.landmarkFile, _graph);
+				
+				logger.info("Landmarks written to file");
+			}
+		}
+		
+		// Note: The bound ignores unreachable landmarks, so it is not consistent (finished nodes could be reopened)
+		//   and the keys are not monotone
+		IntQueue.Type queue = param.queue(Algorithm.ALT);
+		
+		if (queue == IntQueue.Type.RADIX) {
+			
+			logger.warning("Radix queue needs monotone keys, binary queue used for ALT");
+			queue = IntQueue.Type.BINARY;
+		}
+		
+		_alt = new AStar(queue);
+		_alt.prepare(_graph, landmarks);
+	}
+	
+	// Prepare data for calculation on a contraction hierarchy (read from or written to the hierarchy file)
+	public void prepareHierarchy(Parameters param, Logger logger) throws IOException, FatalFailure {
+		
+		ContractionHierarchy hierarchy;
+		long startTime, endTime;
+		
+		if (param.hierarchyFile != null && Files.exists(param.hierarchyFile)) {
+			
+			try {
+				
+				startTime = System.nanoTime();
+				
+				hierarchy = ContractionHierarchy.read(param.hierarchyFile, _graph);
+				
+				endTime = System.nanoTime();
+				
+			} catch (ContractionHierarchy.BadHierarchyFileException ex) {
+				
+				logger.error("Bad hierarchy file provided");
+				logger.info(ex.getMessage());
+				
+				throw new FatalFailure(Code.BAD_HIERARCHY, "Bad hierarchy file provided");
+			}
+			
+			logger.info("Hierarchy read in " + (double)(endTime - startTime) / 1000000000 + " seconds ("
+				+ hierarchy.edgeCount() + " edges)");
+			
+		} else {
+			
+			startTime = System.nanoTime();
+			
+			hierarchy = ContractionHierarchy.create(_graph);
+			
+			endTime = System.nanoTime();
+			
+			logger.info("Hierarchy created in " + (double)(endTime - startTime) / 1000000000 + " seconds ("
+				+ hierarchy.shortcutCount() + " shortcuts, " + hierarchy.edgeCount() + " edges)");
+			
+			if (param.hierarchyFile != null) {
+				
+				// Write hierarchy for the next start
+				hierarchy.write(param.hierarchyFile, _graph);
+				
+				logger.info("Hierarchy written to file");
+			}
+		}
+		
+		_hierarchy = new HierarchyDijkstra(param.queue(Algorithm.CH));
+		_hierarchy.prepare(hierarchy);
+		
+		_sweep = new HierarchySweep(param.queue(Algorithm.CH));
+		_sweep.prepare(hierarchy);
+		
+		_contraction = hierarchy;
+	}
+	
+	// Prepare data for calculation with hub labels (read from or written to the label file)
+	//   Note: The contraction hierarchy is prepared first (order of the labels and paths)
+	public void prepareHubLabels(Parameters param, Logger logger) throws IOException, FatalFailure {
 		
-		_dijkstra = new Dijkstra();
-		_dijkstra.prepare(_nodes);
+		if (_contraction == null)
+			prepareHierarchy(param, logger);
+		
+		HubLabels labels;
+		long startTime, endTime;
+		
+		if (param.labelFile != null && Files.exists(param.labelFile)) {
+			
+			try {
+				
+				startTime = System.nanoTime();
+				
+				labels = HubLabels.read(param.labelFile, _graph, _contraction);
+				
+				endTime = System.nanoTime();
+				
+			} catch (HubLabels.BadLabelFileException ex) {
+				
+				logger.error("Bad label file provided");
+				logger.info(ex.getMessage());
+				
+				throw new FatalFailure(Code.BAD_LABELS, "Bad label file provided");
+			}
+			
+			logger.info("Hub labels read in " + (double)(endTime - startTime) / 1000000000 + " seconds ("
+				+ labels.size() + " bytes)");
+			
+		} else {
+			
+			startTime = System.nanoTime();
+			
+			try {
+				
+				labels = HubLabels.create(_contraction);
+				
+			} catch (IllegalArgumentException ex) {
+				
+				logger.error(ex.getMessage());
+				
+				throw new FatalFailure(Code.BAD_PARAMETER, "Graph too large for hub labels");
+			}
+			
+			endTime = System.nanoTime();
+			
+			logger.info("Hub labels created in " + (double)(endTime - startTime) / 1000000000 + " seconds ("
+				+ labels.entryCount() + " entries, " + labels.size() + " bytes)");
+			
+			if (param.labelFile != null) {
+				
+				// Write labels for the next start
+				labels.write(param.labelFile, _graph, _contraction);
+				
+				logger.info("Hub labels written to file");
+			}
+		}
+		
+		_hubLabels = new HubLabelQuery();
+		_hubLabels.prepare(labels, _contraction);
+	}
+	
+	// Graph with reverse edges (created on first use)
+	private GraphStore reverseGraph() {
+		
+		if (_reverse == null)
+			_reverse = _graph.reverse();
+		
+		return _reverse;
+	}
+	
+	// Create Dijkstra implementation (with contracted chains if requested)
+	private static Dijkstra createDijkstra(GraphStore graph, Parameters param, Logger logger) throws IOException {
+		
+		Dijkstra dijkstra = new Dijkstra(param.queue(Algorithm.DIJKSTRA));
+		
+		if (!param.isContracted) {
+			
+			dijkstra.prepare(graph);
+			return dijkstra;
+		}
+		
+		ChainContraction chains = new ChainContraction(graph);
+		dijkstra.prepare(chains);
+		
+		logger.info("Chains contracted: " + chains.interiorCount() + " of " + graph.nodeCount()
+			+ " nodes on chains, " + chains.core().edgeCount() + " of " + graph.edgeCount() + " edges left");
+		
+		return dijkstra;
 	}
 	
 	// Prepare data for next node calculation
 	public void prepareNextNode() {
 		
 		_nextNode = new NextNode();
-		_nextNode.prepare(_nodes);
+		_nextNode.prepare(_graph);
 	}
 	
-	// Prepare data for calculation (Dijkstra & next node)
-	public void prepare() {
+	// Prepare data for calculation (Dijkstra, reverse Dijkstra & next node, and the requested algorithms)
+	//   Note: Requests for an algorithm which is not prepared are rejected (see 'checkPrepared()')
+	public void prepare(Parameters param, Logger logger) throws IOException, FatalFailure {
 		
-		prepareDijkstra();
+		prepareDijkstra(param, logger);
+		prepareReverseDijkstra(param, logger);
 		prepareNextNode();
+		
+		if (param.algorithms.contains(Algorithm.BIDIRECTIONAL))
+			prepareBidirectional(param);
+		
+		if (param.algorithms.contains(Algorithm.ASTAR))
+			prepareAStar(param, logger);
+		
+		if (param.algorithms.contains(Algorithm.ALT))
+			prepareAlt(param, logger);
+		
+		if (param.algorithms.contains(Algorithm.CH))
+			prepareHierarchy(param, logger);
+		
+		if (param.algorithms.contains(Algorithm.HL))
+			prepareHubLabels(param, logger);
 	}
 	
-	// Read graph from input stream
-	public Node[] readGraph(Parameters param, Logger logger) throws IOException, FatalFailure {
+	// Prepare the contexts of the requests (at most 'count' requests are calculated at the same time)
+	public void prepareContexts(int count) {
 		
+		_contexts = new ArrayBlockingQueue<>(count);
+		
+		for (int i = 0; i < count; i++)
+			_contexts.add(new QueryContext(_graph.nodeCount()));
+	}
+	
+	// Lease a context for a request (wait until a context is released)
+	private QueryContext lease() throws IOException {
+		
+		try {
+			
+			return _contexts.take();
+			
+		} catch (InterruptedException ex) {
+			
+			Thread.currentThread().interrupt();
+			
+			throw new InterruptedIOException("Interrupted while waiting for a query context");
+		}
+	}
+	
+	// Release the context of a request
+	private void release(QueryContext context) {
+		_contexts.add(context);
+	}
+	
+	// Check if the algorithm is prepared (the server prepares only the requested algorithms)
+	private void checkPrepared(Algorithm algorithm, Logger logger) throws IOException, FatalFailure {
+		
+		boolean isPrepared;
+		switch (algorithm) {
+		
+		case BIDIRECTIONAL:
+			
+			isPrepared = _bidirectional != null;
+			break;
+			
+		case ASTAR:
+			
+			isPrepared = _aStar != null;
+			break;
+			
+		case ALT:
+			
+			isPrepared = _alt != null;
+			break;
+			
+		case CH:
+			
+			isPrepared = _hierarchy != null;
+			break;
+			
+		case HL:
+			
+			isPrepared = _hubLabels != null;
+			break;
+			
+		default:
+			
+			isPrepared = _dijkstra != null;
+		}
+		
+		if (!isPrepared) {
+			
+			logger.error("Algorithm not prepared");
+			
+			throw new FatalFailure(Code.BAD_REQUEST, "Algorithm not prepared (add it to --algorithm at start)");
+		}
+	}
+	
+	// Read graph from input stream (or snapshot file)
+	public GraphStore readGraph(Parameters param, Logger logger) throws IOException, FatalFailure {
+		
+		_graph = null;
+		_reverse = null;
+		_contraction = null;
 		_nodes = null;
+		_contexts = null;
 		long startTime, endTime;
 
+		if (param.snapshotFile != null && Files.exists(param.snapshotFile)) {
+
+			logger.info(System.lineSeparator() + "Reading graph snapshot" + System.lineSeparator());
+
+			try {
+
+				startTime = System.nanoTime();
+
+				// Map snapshot file
+				_graph = GraphSnapshot.read(param.snapshotFile, param.isOffHeap);
+
+				endTime = System.nanoTime();
+
+			} catch (GraphSnapshot.BadSnapshotException ex) {
+
+				logger.error("Bad snapshot provided");
+				logger.info(ex.getMessage());
+
+				throw new FatalFailure(Code.BAD_SNAPSHOT, "Bad snapshot provided");
+			}
+
+			logger.info(_graph.nodeCount() + " nodes read in "
+					+ (double)(endTime - startTime) / 1000000000 + " seconds");
+
+			return convertStorage(param, logger);
+		}
+
 		logger.info(System.lineSeparator() + "Reading graph" + System.lineSeparator());
 
 		try {
@@ -124,7 +584,12 @@ public class App {
 			startTime = System.nanoTime();
 
 			// Read graph description file
-			_nodes = FileScanner.readStructure(param.structureIn, logger, param.isTolerant);
+			//   Note: The file is parsed in parallel, if it is not needed to
+			//     skip bad lines or to continue reading requests from the same stream
+			if (param.structureFile != null && !param.isTolerant && param.structureIn != param.requestIn)
+				_graph = ParallelFileScanner.readStructure(param.structureFile, logger);
+			else
+				_graph = FileScanner.readStructure(param.structureIn, logger, param.isTolerant);
 			
 			endTime = System.nanoTime();	
 
@@ -150,10 +615,98 @@ public class App {
 			throw new FatalFailure(Code.BAD_EDGE, "Bad edge provided");
 		}
 
-		logger.info(System.lineSeparator() + _nodes.length + " nodes read in "
+		logger.info(System.lineSeparator() + _graph.nodeCount() + " nodes read in "
 				+ (double)(endTime - startTime) / 1000000000 + " seconds");
+
+		if (param.order != Order.NONE) {
+
+			startTime = System.nanoTime();
+
+			// Renumber nodes for better memory locality
+			int[] order = param.order == Order.HILBERT
+				? NodeOrder.hilbert(_graph)
+				: NodeOrder.breadthFirst(_graph);
+
+			_graph = _graph.reorder(order);
+
+			endTime = System.nanoTime();
+
+			logger.info("Nodes reordered in " + (double)(endTime - startTime) / 1000000000 + " seconds");
+		}
+
+		if (param.snapshotFile != null) {
+
+			startTime = System.nanoTime();
+
+			// Write snapshot for the next start
+			GraphSnapshot.write(_graph, param.snapshotFile);
+
+			endTime = System.nanoTime();
+
+			logger.info("Snapshot written in " + (double)(endTime - startTime) / 1000000000 + " seconds");
+		}
 		
-		return _nodes;	
+		return convertStorage(param, logger);
+	}
+	
+	// Convert graph to the requested storage formats and create node list
+	private GraphStore convertStorage(Parameters param, Logger logger) throws IOException, FatalFailure {
+		
+		if (param.isFixedPoint) {
+			
+			try {
+				
+				_graph = _graph.toFixedPoint();
+				
+			} catch (IllegalArgumentException ex) {
+				
+				logger.error("Bad node provided");
+				logger.info(ex.getMessage());
+				
+				throw new FatalFailure(Code.BAD_NODE, "Bad node provided");
+			}
+			
+			logger.info("Coordinates converted to fixed-point format");
+		}
+		
+		if (param.isCompressed) {
+			
+			long rawSize = _graph.edgeSize();
+			
+			// Encode edges as variable-length integers
+			_graph = _graph.toCompressed();
+			
+			logger.info("Edges compressed from " + rawSize + " to " + _graph.edgeSize() + " bytes");
+		}
+		
+		if (param.isOffHeap && !_graph.isOffHeap()) {
+			
+			// Move graph out of the heap
+			_graph = _graph.toOffHeap();
+			
+			logger.info("Graph moved out of the heap");
+		}
+		
+		_nodes = createNodes(_graph);
+		prepareContexts(1);
+		
+		return _graph;
+	}
+	
+	// Return the node list (results)
+	public Node[] nodes() {
+		return _nodes;
+	}
+	
+	// Create node list for the results
+	private static Node[] createNodes(GraphStore graph) {
+		
+		Node[] nodes = new Node[graph.nodeCount()];
+		
+		for (int i = 0; i < nodes.length; i++)
+			nodes[i] = new Node(graph.externalId(i));
+		
+		return nodes;
 	}
 	
 	// Find node by ID
@@ -165,7 +718,7 @@ public class App {
 
 	    param.requestOut.write("1");
 
-	    writeNode(_nodes[param.start], param.requestOut, param.printLocation, false, false);
+	    writeNode(_nodes[_graph.internalId(param.start)], param.requestOut, param.printLocation, false, false);
 
 	    logger.info(System.lineSeparator() + "Found node " + param.start);
 
@@ -182,41 +735,88 @@ public class App {
 	}
 	
 	// Calculate distances from one starting point
+	//   Note: For all-to-one the distances to the point are calculated on the reverse graph
 	public void runSingleDijkstra(Parameters param, Logger logger) throws IOException, FatalFailure {
 		
+		QueryContext context = lease();
+		
+		try {
+			
+			runSingleDijkstra(param, logger, context);
+			
+		} finally {
+			
+			release(context);
+		}
+	}
+	
+	// Calculate distances from one starting point with the engines of the context
+	private void runSingleDijkstra(Parameters param, Logger logger, QueryContext context) throws IOException, FatalFailure {
+		
 		if (param.start < 0 || param.start >= _nodes.length) {
 			
-			logger.error("nodeID of starting point out of range");
+			logger.error(param.mode == Mode.ATO
+				? "nodeID of target point out of range"
+				: "nodeID of starting point out of range");
 			
 			throw new FatalFailure(Code.BAD_PARAMETER, "nodeID out of range");
 		}
 		
-		_dijkstra.reset();
+		boolean isSweep = param.algorithm == Algorithm.CH;
+		
+		if (isSweep)
+			checkPrepared(param.algorithm, logger);
+		
+		Dijkstra dijkstra = isSweep ? null : context.engine(param.mode == Mode.ATO ? _reverseDijkstra : _dijkstra, Dijkstra::new);
+		HierarchySweep sweep = isSweep ? context.engine(_sweep, HierarchySweep::new) : null;
+		
+		if (!isSweep)
+			dijkstra.reset();
 
 		logger.info(System.lineSeparator() + "Start calculation");
 
 		long startTime = System.nanoTime();
 
-		// Calculate distances
-		_dijkstra.calculate(param.start);
+		// Calculate distances (upward search and sweep over the hierarchy for CH)
+		if (isSweep)
+			sweep.calculate(_graph.internalId(param.start), param.mode == Mode.ATO);
+		else
+			dijkstra.calculate(_graph.internalId(param.start));
 
 		long endTime = System.nanoTime();	
 
 
 		logger.info("Path calculated in " + (double)(endTime - startTime) / 1000000000 + " seconds" + System.lineSeparator());
 		
-		_dijkstra.getResult(_nodes);
+		// Note: Only the printed nodes are read from the result
+		PathResult result = isSweep ? sweep.result() : dijkstra.result();
 
 		switch (param.mode) {
 		
+		case ATO:
+			
+			// Output result (ordered by ID)
+			//   Note: The previous node of a node is the next node on the path to the target
+			for (int id = 0; id < _nodes.length; id++) {
+				
+				int node = _graph.internalId(id);
+				
+				writeDijkstraResult(result, node, param);
+
+				logger.info("" + id + " -> " + param.start + " : " + result.distance(node));
+			}		
+			break;	
+		
 		case OTA:
 			
-			// Output result
-			for (Node node : _nodes) {
+			// Output result (ordered by ID)
+			for (int id = 0; id < _nodes.length; id++) {
+				
+				int node = _graph.internalId(id);
 				
-				writeDijkstraResult(node, param);
+				writeDijkstraResult(result, node, param);
 
-				logger.info("" + param.start + " -> " + node.id() + " : " + node.distance());
+				logger.info("" + param.start + " -> " + id + " : " + result.distance(node));
 			}		
 			break;	
 
@@ -228,14 +828,13 @@ public class App {
 				+ "  use multiple lines for multiple requests" + System.lineSeparator()
 				+ "  end input with <EOF> (CTRL+D)" + System.lineSeparator());
 
-			FileScanner.StringPosition pos = new FileScanner.StringPosition();
 			while (true) {
 
 				int trgId;
 				try {
 					
 					// Read target request
-					trgId = FileScanner.readId(param.requestIn, pos, _nodes.length, logger, param.isTolerant);
+					trgId = FileScanner.readId(param.requestIn, _nodes.length, logger, param.isTolerant);
 
 				} catch (FileScanner.BadRequestException ex) {
 					
@@ -252,11 +851,11 @@ public class App {
 				
 				// Output result
 
-				Node dst = _nodes[trgId];
+				int target = _graph.internalId(trgId);
 				
-				writeDijkstraResult(dst, param);
+				writeDijkstraResult(result, target, param);
 				
-				logger.info("" + param.start + " -> " + trgId + " : " + dst.distance() + System.lineSeparator());
+				logger.info("" + param.start + " -> " + trgId + " : " + result.distance(target) + System.lineSeparator());
 			}	
 			break;
 			
@@ -268,21 +867,38 @@ public class App {
 	
 	// Calculate distances from multiple starting points
 	public void runMultipleDijkstra(Parameters param, Logger logger) throws IOException, FatalFailure {
+		
+		QueryContext context = lease();
+		
+		try {
+			
+			runMultipleDijkstra(param, logger, context);
+			
+		} finally {
+			
+			release(context);
+		}
+	}
+	
+	// Calculate distances from multiple starting points with the engines of the context
+	private void runMultipleDijkstra(Parameters param, Logger logger, QueryContext context) throws IOException, FatalFailure {
 
+		checkPrepared(param.algorithm, logger);
+		
 		logger.instruction(System.lineSeparator()
 			+ "Input format: [srcID] [trgID] e.g. 18445 12343" + System.lineSeparator()
 			+ "  use multiple lines for multiple requests" + System.lineSeparator()
 			+ "  end input with <EOF> (CTRL+D)" + System.lineSeparator());
 
-		FileScanner.StringPosition pos = new FileScanner.StringPosition();
+		int[] request = new int[2];
 		int lastRequest = -1;
 		while (true) {
 
-			int[] request;
+			boolean found;
 			try {
 				
 				// Read path request
-				request = FileScanner.readRequest(param.requestIn, pos, _nodes.length, logger, param.isTolerant);
+				found = FileScanner.readRequest(param.requestIn, request, _nodes.length, logger, param.isTolerant);
 				
 			} catch (FileScanner.BadRequestException ex) {
 				
@@ -292,58 +908,231 @@ public class App {
 				throw new FatalFailure(Code.BAD_REQUEST, "Bad request provided");
 			}	
 			
-			// Note: No 'while (request != null) {...}' loop used
+			// Note: No 'while (found) {...}' loop used
 			//   to prevent code duplication of 'FileScanner.readRequest(...)'
-			if (request == null)
+			if (!found)
 				break;
 
-			if (request[0] != lastRequest) {
+			int source = _graph.internalId(request[0]);
+			int target = _graph.internalId(request[1]);
+			
+			// Note: The search state of the last request is kept (only reused for reachable targets)
+			if (_components.isUnreachable(source, target)) {
 				
-				lastRequest = request[0];
+				// Output result without calculation
+				writeDijkstraResult(unreachableResult, target, param);
 				
-				_dijkstra.reset();
-
-				logger.info("Start calculation");
+				logger.info("" + request[0] + " -> " + request[1] + " : -1 (unreachable)" + System.lineSeparator());
+				continue;
+			}
 
-				long startTime = System.nanoTime();
+			PathResult result;
+			switch (param.algorithm) {
+			
+			case BIDIRECTIONAL:
 				
-				// Calculate distances
-				_dijkstra.calculate(lastRequest);
+				result = calculateBidirectional(source, target, context, logger);
+				break;
 				
-				long endTime = System.nanoTime();	
-
-
-				logger.info("Path calculated in " + (double)(endTime - startTime) / 1000000000 + " seconds" + System.lineSeparator());	
+			case ASTAR:
+				
+				result = calculateAStar(_aStar, source, target, context, logger);
+				break;
+				
+			case ALT:
 				
-				_dijkstra.getResult(_nodes);
+				result = calculateAStar(_alt, source, target, context, logger);
+				break;
+				
+			case CH:
+				
+				result = calculateHierarchy(source, target, context, logger);
+				break;
+				
+			case HL:
+				
+				result = calculateHubLabels(source, target, param.printPath, context, logger);
+				break;
+				
+			default:
+				
+				result = calculateDijkstra(source, target, request[0] != lastRequest, context, logger);
+				lastRequest = request[0];
 			}
 			
 			// Output result
 
-			Node dst = _nodes[request[1]];
-
-			writeDijkstraResult(dst, param);
+			writeDijkstraResult(result, target, param);
 			
-			logger.info("" + request[0] + " -> " + request[1] + " : " + dst.distance() + System.lineSeparator());
+			logger.info("" + request[0] + " -> " + request[1] + " : " + result.distance(target) + System.lineSeparator());
 		}		
 	}
 	
+	// Calculate path with Dijkstra, return the result
+	//   Note: The calculation stops at the target and is continued
+	//   for further requests with the same source
+	private PathResult calculateDijkstra(int source, int target, boolean isNewSource, QueryContext context, Logger logger) throws IOException {
+		
+		Dijkstra dijkstra = context.engine(_dijkstra, Dijkstra::new);
+		
+		if (isNewSource || !dijkstra.isFinished(target)) {
+			
+			logger.info("Start calculation");
+
+			long startTime = System.nanoTime();
+			
+			// Calculate distances
+			if (isNewSource) {
+				
+				dijkstra.reset();
+				dijkstra.calculate(source, target);
+				
+			} else {
+				
+				dijkstra.resume(target);
+			}
+			
+			long endTime = System.nanoTime();	
+
+
+			logger.info("Path calculated in " + (double)(endTime - startTime) / 1000000000 + " seconds ("
+				+ dijkstra.finishedCount() + " nodes finished)" + System.lineSeparator());	
+		}
+		
+		return dijkstra.result();
+	}
+	
+	// Calculate path with bidirectional Dijkstra, return the result (set in the buffer of the context)
+	private PathResult calculateBidirectional(int source, int target, QueryContext context, Logger logger) throws IOException {
+		
+		BidirectionalDijkstra bidirectional = context.engine(_bidirectional, BidirectionalDijkstra::new);
+		
+		logger.info("Start calculation");
+
+		long startTime = System.nanoTime();
+		
+		bidirectional.reset();
+		bidirectional.calculate(source, target);
+		
+		long endTime = System.nanoTime();	
+
+
+		logger.info("Path calculated in " + (double)(endTime - startTime) / 1000000000 + " seconds ("
+			+ bidirectional.finishedCount() + " nodes finished)" + System.lineSeparator());	
+		
+		PathBuffer result = context.clearedPath();
+		
+		bidirectional.getResult(result);
+		
+		return result;
+	}
+	
+	// Calculate distance with hub labels (and the path if 'withPath'), return the result (set in the buffer of the context)
+	private PathResult calculateHubLabels(int source, int target, boolean withPath, QueryContext context, Logger logger) throws IOException {
+		
+		HubLabelQuery hubLabels = context.engine(_hubLabels, HubLabelQuery::new);
+		
+		logger.info("Start calculation");
+
+		long startTime = System.nanoTime();
+		
+		hubLabels.calculate(source, target);
+		
+		long endTime = System.nanoTime();	
+
+
+		logger.info("Distance calculated in " + (double)(endTime - startTime) / 1000000000 + " seconds" + System.lineSeparator());	
+		
+		PathBuffer result = context.clearedPath();
+		
+		hubLabels.getResult(result, withPath);
+		
+		return result;
+	}
+	
+	// Calculate path on the contraction hierarchy, return the result (set in the buffer of the context)
+	private PathResult calculateHierarchy(int source, int target, QueryContext context, Logger logger) throws IOException {
+		
+		HierarchyDijkstra hierarchy = context.engine(_hierarchy, HierarchyDijkstra::new);
+		
+		logger.info("Start calculation");
+
+		long startTime = System.nanoTime();
+		
+		hierarchy.reset();
+		hierarchy.calculate(source, target);
+		
+		long endTime = System.nanoTime();	
+
+
+		logger.info("Path calculated in " + (double)(endTime - startTime) / 1000000000 + " seconds ("
+			+ hierarchy.finishedCount() + " nodes finished)" + System.lineSeparator());	
+		
+		PathBuffer result = context.clearedPath();
+		
+		hierarchy.getResult(result);
+		
+		return result;
+	}
+	
+	// Calculate path with A* (great-circle or landmark bound), return the result (set in the buffer of the context)
+	private PathResult calculateAStar(AStar prepared, int source, int target, QueryContext context, Logger logger) throws IOException {
+		
+		AStar aStar = context.engine(prepared, AStar::new);
+		
+		logger.info("Start calculation");
+
+		long startTime = System.nanoTime();
+		
+		aStar.reset();
+		aStar.calculate(source, target);
+		
+		long endTime = System.nanoTime();	
+
+
+		logger.info("Path calculated in " + (double)(endTime - startTime) / 1000000000 + " seconds ("
+			+ aStar.finishedCount() + " nodes finished)" + System.lineSeparator());	
+		
+		PathBuffer result = context.clearedPath();
+		
+		aStar.getResult(result);
+		
+		return result;
+	}
+	
 	// Calculate next node
 	public void runNextNode(Parameters param, Logger logger) throws IOException, FatalFailure {
 		
+		QueryContext context = lease();
+		
+		try {
+			
+			runNextNode(param, logger, context);
+			
+		} finally {
+			
+			release(context);
+		}
+	}
+	
+	// Calculate next node with the instance of the context
+	private void runNextNode(Parameters param, Logger logger, QueryContext context) throws IOException, FatalFailure {
+		
+		NextNode nextNode = context.engine(_nextNode, NextNode::new);
+		
 		logger.instruction(System.lineSeparator()
 				+ "Input format: [latitude] [longitude] e.g. 49.2 9.8" + System.lineSeparator()
 				+ "  use multiple lines for multiple requests" + System.lineSeparator()
 				+ "  end input with <EOF> (CTRL+D)" + System.lineSeparator());
 
-		FileScanner.StringPosition pos = new FileScanner.StringPosition();
+		double[] req = new double[2];
 		while (true) {
 
-			double[] req;
+			boolean found;
 			try {
 				
 				// Read request
-				req = FileScanner.readCoordinates(param.requestIn, pos, logger, param.isTolerant);
+				found = FileScanner.readCoordinates(param.requestIn, req, logger, param.isTolerant);
 				
 			} catch (FileScanner.BadRequestException ex) {
 				
@@ -353,9 +1142,9 @@ public class App {
 				throw new FatalFailure(Code.BAD_REQUEST, "Bad request provided");
 			}	
 			
-			// Note: No 'while (req != null) {...}' loop used
+			// Note: No 'while (found) {...}' loop used
 			//   to prevent code duplication of 'FileScanner.readCoordinates(...)'
-			if (req == null)
+			if (!found)
 				break;
 			
 			
@@ -369,7 +1158,7 @@ public class App {
 				
 				startTime = System.nanoTime();
 				
-				distance = _nextNode.findNextIterative(req[0], req[1]);
+				distance = nextNode.findNextIterative(req[0], req[1]);
 				
 				endTime = System.nanoTime();
 				break;
@@ -378,7 +1167,7 @@ public class App {
 				
 				startTime = System.nanoTime();
 				
-				distance = _nextNode.findNext(req[0], req[1]);
+				distance = nextNode.findNext(req[0], req[1]);
 				
 				endTime = System.nanoTime();
 				break;
@@ -390,7 +1179,7 @@ public class App {
 			
 			logger.info("Nearest node(s) found in " + (double)(endTime - startTime) / 1000000 + " ms" + System.lineSeparator());
 			
-			Node[] result = _nextNode.getResult(_nodes);
+			Node[] result = nextNode.getResult(_nodes);
 
 			// Output result
 			
@@ -398,13 +1187,13 @@ public class App {
 
 			logger.info("Distance to ( " + req[1] + " , " + req[0] + " ) : " + distance);
 			for (Node n : result)
-				logger.info("  node: " + n.id() + " ( " + n.latitude() + " , " + n.longitude() + " )");
+				logger.info("  node: " + n.id() + " ( " + latitude(n) + " , " + longitude(n) + " )");
 			logger.info("");
 		}	
 	}
 	
 	// Write result of next node calculation to requestOut
-	private static void writeNextNodeResult(Node[] result, double distance, Parameters param) throws IOException {
+	private void writeNextNodeResult(Node[] result, double distance, Parameters param) throws IOException {
 
 		param.requestOut.write("" + distance);
 
@@ -414,26 +1203,46 @@ public class App {
 		param.requestOut.write("\n");
 	}
 	
-	// Write result of Dijkstra calculation to requestOut
-	private static void writeDijkstraResult(Node node, Parameters param) throws IOException {
+	// Write result of Dijkstra calculation for the node to requestOut
+	private void writeDijkstraResult(PathResult result, int node, Parameters param) throws IOException {
 		
-		param.requestOut.write("" + node.distance());
+		param.requestOut.write("" + result.distance(node));
 
 		if (param.printLocation || param.printDistance || param.printPath)
-			writeNode(node, param.requestOut, param.printLocation, param.printDistance, param.printPath);
+			writePath(result, node, param.requestOut, param.printLocation, param.printDistance, param.printPath);
 
 		param.requestOut.write("\n");	
 	}
 	
+	// Write node (and its path if 'printPath') of the result to the specified writer
+	private void writePath(PathResult result, int node, BufferedWriter writer, boolean printLocation, boolean printDistance, boolean printPath) throws IOException {
+		
+		PathCursor path = new PathCursor(result);
+		
+		for (path.reset(node); path.next(); ) {
+
+			writer.write(" " + _graph.externalId(path.node()));
+			
+			if (printLocation)
+				writer.write(" " + latitude(path.node()) + " " + longitude(path.node()));
+			
+			if (printDistance)
+				writer.write(" " + path.distance());
+			
+			if (!printPath)
+				break;
+		}
+	}
+	
 	// Write node to the specified writer
-	private static void writeNode(Node node, BufferedWriter writer, boolean printLocation, boolean printDistance, boolean printPath) throws IOException {
+	private void writeNode(Node node, BufferedWriter writer, boolean printLocation, boolean printDistance, boolean printPath) throws IOException {
 		
 		while (node != null) {
 
 			writer.write(" " + node.id());
 			
 			if (printLocation)
-				writer.write(" " + node.latitude() + " " + node.longitude());
+				writer.write(" " + latitude(node) + " " + longitude(node));
 			
 			if (printDistance)
 				writer.write(" " + node.distance());
@@ -443,12 +1252,75 @@ public class App {
 	}
 	
 
+	// Format latitude of the node
+	private String latitude(Node node) {
+		return latitude(_graph.internalId(node.id()));
+	}
+	
+	// Format longitude of the node
+	private String longitude(Node node) {
+		return longitude(_graph.internalId(node.id()));
+	}
+
+	// Format latitude of the node (internal index)
+	private String latitude(int index) {
+		
+		return _graph.isFixedPoint()
+			? FixedPoint.format(_graph.fixedLatitude(index))
+			: Double.toString(_graph.latitude(index));
+	}
+	
+	// Format longitude of the node (internal index)
+	private String longitude(int index) {
+		
+		return _graph.isFixedPoint()
+			? FixedPoint.format(_graph.fixedLongitude(index))
+			: Double.toString(_graph.longitude(index));
+	}
+	
+
 	// Dijkstra implementation
 	private Dijkstra _dijkstra;
 	
+	// Components for Dijkstra calculation
+	private Components _components;
+	
+	// Dijkstra implementation on the reverse graph
+	private Dijkstra _reverseDijkstra;
+	
+	// Bidirectional Dijkstra implementation
+	private BidirectionalDijkstra _bidirectional;
+	
+	// A* implementation
+	private AStar _aStar;
+	
+	// A* implementation with landmarks
+	private AStar _alt;
+	
+	// Query on the contraction hierarchy
+	private HierarchyDijkstra _hierarchy;
+	
+	// One-to-all sweep on the contraction hierarchy
+	private HierarchySweep _sweep;
+	
+	// Contraction hierarchy (null if not prepared)
+	private ContractionHierarchy _contraction;
+	
+	// Query with hub labels
+	private HubLabelQuery _hubLabels;
+	
 	// Next node implementation
 	private NextNode _nextNode;
 	
-	// Node list (graph)
+	// Graph structure
+	private GraphStore _graph;
+	
+	// Graph with reverse edges (null if not used)
+	private GraphStore _reverse;
+	
+	// Node list (IDs for next node results, not changed by calculations)
 	private Node[] _nodes;
+	
+	// Contexts of the requests which are not leased (per-request copies of the engines and result buffer)
+	private BlockingQueue<QueryContext> _contexts;
 }
@@ -0,0 +1,257 @@
+package routeplanner.backend.app;
+
+import routeplanner.backend.model.*;
+
+/*
+ * Implementation of the bidirectional Dijkstra algorithm for point-to-point requests
+ *   A forward search from the start (outgoing edges) and a backward search from the
+ *   target (incoming edges) run alternately. Every edge reaching a node labeled by the
+ *   other search is a candidate for the shortest path (meeting node). The search stops
+ *   if the sum of the minimal queue keys is not smaller than the best candidate.
+ */
+public class BidirectionalDijkstra {
+
+	// Calculate shortest path from start to target, return the distance (-1 if unreachable)
+	public int calculate(int start, int target) {
+
+		_target = target;
+		_distance = Integer.MAX_VALUE;
+		_meeting = -1;
+
+		start(forward, start);
+		start(backward, target);
+
+		while (!_queues[forward].isEmpty() && !_queues[backward].isEmpty()) {
+
+			// Stop if no shorter path could be found
+			if ((long)_queues[forward].peekKey() + _queues[backward].peekKey() >= _distance)
+				break;
+
+			// Continue search with the smaller distance
+			if (_queues[forward].peekKey() <= _queues[backward].peekKey())
+				finishNext(forward);
+			else
+				finishNext(backward);
+		}
+
+		return _distance == Integer.MAX_VALUE ? -1 : _distance;
+	}
+
+	// Get the calculated path (into the cleared buffer, only the nodes on the path are set)
+	public void getResult(PathBuffer result) {
+
+		if (_meeting < 0)
+			return;
+
+		// Path from start to meeting node
+		for (int node = _meeting; node != -1; node = previous(forward, node))
+			result.set(node, Math.abs(distance(forward, node)), previous(forward, node));
+
+		// Path from meeting node to target (previous nodes of the backward search are the next nodes of the path)
+		for (int node = _meeting; node != _target; ) {
+
+			int next = previous(backward, node);
+
+			result.set(next, _distance - Math.abs(distance(backward, next)), node);
+
+			node = next;
+		}
+	}
+
+	// Number of finished nodes (of both searches) since the last reset
+	public int finishedCount() {
+		return _finishedCount;
+	}
+
+	public BidirectionalDijkstra() {
+		this(IntQueue.Type.BINARY);
+	}
+
+	// Engine with the type of the priority queue
+	public BidirectionalDijkstra(IntQueue.Type queueType) {
+		_queueType = queueType;
+	}
+
+	// Copy of a prepared engine (shares the prepared data, for calculation on another thread)
+	public BidirectionalDijkstra(BidirectionalDijkstra prepared) {
+
+		_queueType = prepared._queueType;
+		_graph = prepared._graph;
+		_reverse = prepared._reverse;
+
+		allocate();
+	}
+
+	// Prepare data for calculation (graph and graph with reverse edges)
+	public void prepare(GraphStore graph, GraphStore reverse) {
+
+		_graph = graph;
+		_reverse = reverse;
+
+		allocate();
+	}
+
+	// Allocate data of a calculation
+	private void allocate() {
+
+		int nodeCount = _graph.nodeCount();
+
+		_edges = new EdgeCursor[] { new EdgeCursor(_graph), new EdgeCursor(_reverse) };
+
+		_queues = new IntQueue[] { IntQueue.create(_queueType, nodeCount), IntQueue.create(_queueType, nodeCount) };
+
+		_data = new int[][] { new int[nodeCount * 2], new int[nodeCount * 2] };
+		_touched = new int[][] { new int[nodeCount], new int[nodeCount] };
+		_touchedCounts = new int[2];
+
+		for (int direction = forward; direction <= backward; direction++)
+			for (int i = 0; i < nodeCount; i++)
+				clear(direction, i);
+	}
+
+	// Reset distances and path for new calculation
+	//   Note: Only the nodes reached by the last calculation are reset
+	public void reset() {
+
+		for (int direction = forward; direction <= backward; direction++) {
+
+			_queues[direction].clear();
+
+			for (int i = 0; i < _touchedCounts[direction]; i++)
+				clear(direction, _touched[direction][i]);
+
+			_touchedCounts[direction] = 0;
+		}
+
+		_finishedCount = 0;
+	}
+
+	// Initialize search of the direction
+	private void start(int direction, int node) {
+
+		setPrevious(direction, node, 0, -1);
+		_queues[direction].insert(node, 0);
+
+		update(direction, node, 0);
+	}
+
+	// Finish next node of the queue of the direction
+	private void finishNext(int direction) {
+
+		IntQueue queue = _queues[direction];
+		EdgeCursor edges = _edges[direction];
+
+		// Remove next node from queue
+		int currentId = queue.poll();
+		int currentDistance = distance(direction, currentId);
+
+		// Skip node if already finished
+		if (currentDistance < 0)
+			return;
+
+		// Mark node finished
+		setDistance(direction, currentId, -currentDistance);
+		_finishedCount++;
+
+
+		for (edges.reset(currentId); edges.next(); ) {
+
+			// Check if there is an unknown (shorter) path
+			int neighbor = edges.target();
+			int newDistance = edges.cost() + currentDistance;
+
+			if (newDistance < distance(direction, neighbor)) {
+
+				setPrevious(direction, neighbor, newDistance, currentId);
+
+				// Add node with new distance to queue
+				queue.insert(neighbor, newDistance);
+
+				update(direction, neighbor, newDistance);
+			}
+		}
+	}
+
+	// Check if the node is a better meeting node (after distance changed in the direction)
+	private void update(int direction, int node, int distance) {
+
+		int other = distance(1 - direction, node);
+
+		if (other == Integer.MAX_VALUE)
+			return;
+
+		int sum = distance + Math.abs(other);
+
+		if (sum < _distance) {
+
+			_distance = sum;
+			_meeting = node;
+		}
+	}
+
+	private int distance(int direction, int node) {
+		return _data[direction][node * 2];
+	}
+
+	private void setDistance(int direction, int node, int distance) {
+		_data[direction][node * 2] = distance;
+	}
+
+	private int previous(int direction, int node) {
+		return _data[direction][node * 2 + 1];
+	}
+
+	// Set distance and previous node (and remember the node if it is reached the first time)
+	private void setPrevious(int direction, int node, int distance, int previous) {
+
+		if (_data[direction][node * 2] == Integer.MAX_VALUE)
+			_touched[direction][_touchedCounts[direction]++] = node;
+
+		_data[direction][node * 2] = distance;
+		_data[direction][node * 2 + 1] = previous;
+	}
+
+	// Set node not reached
+	private void clear(int direction, int node) {
+		_data[direction][node * 2] = Integer.MAX_VALUE;
+		_data[direction][node * 2 + 1] = -1;
+	}
+
+
+	// Index of the forward and backward search
+	private static final int forward = 0;
+	private static final int backward = 1;
+
+	// Graph structure
+	private GraphStore _graph;
+
+	// Graph with reverse edges
+	private GraphStore _reverse;
+
+	// Iterators over the outgoing (forward) and incoming (backward) edges
+	private EdgeCursor[] _edges;
+
+	// Distance and previous node of each node (of each search)
+	//   Note: Finished nodes have a negative distance (like in 'Dijkstra')
+	private int[][] _data;
+
+	// Nodes reached since the last reset (of each search)
+	private int[][] _touched;
+	private int[] _touchedCounts;
+
+	// Type of the priority queue
+	private IntQueue.Type _queueType;
+
+	// Priority queues for non-finished nodes (of each search)
+	private IntQueue[] _queues;
+
+	// Target of the last calculation
+	private int _target;
+
+	// Length of the shortest path found so far and its meeting node (-1 if none)
+	private int _distance;
+	private int _meeting;
+
+	// Number of finished nodes
+	private int _finishedCount;
+}
@@ -0,0 +1,263 @@
+package routeplanner.backend.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Line based reader working directly on bytes
+ *   Numbers are decoded in place without creating strings.
+ */
+public class ByteLineReader implements Closeable {
+
+	// Initial size of the buffer in bytes
+	static final int bufferSize = 1 << 16;
+
+	// Powers of ten which are exactly representable as double
+	private static final double[] powersOfTen = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// Maximum number of digits to decode a decimal without rounding errors
+	private static final int maxExactDigits = 15;
+
+
+	// Read lines from a stream
+	public ByteLineReader(InputStream stream) {
+
+		_stream = stream;
+		_data = new byte[bufferSize];
+	}
+
+	// Read lines from a byte array
+	public ByteLineReader(byte[] data) {
+
+		_stream = null;
+		_data = data;
+		_limit = data.length;
+	}
+
+	// Move to the next line, return false at the end of input
+	public boolean nextLine() throws IOException {
+
+		// Number of bytes of the line already searched for a line break
+		int searched = 0;
+
+		while (true) {
+
+			int i = _next + searched;
+			for (; i < _limit && _data[i] != '\n'; i++);
+
+			if (i < _limit) {
+				// Line break found
+				setLine(_next, i, i + 1);
+				return true;
+			}
+
+			searched = i - _next;
+
+			if (!fill()) {
+
+				if (_next == _limit)
+					return false;
+
+				// Last line without line break
+				setLine(_next, _limit, _limit);
+				return true;
+			}
+		}
+	}
+
+	// Move to the next line which is neither empty nor a comment, return false at the end of input
+	public boolean nextRelevantLine() throws IOException {
+
+		while (nextLine()) {
+
+			if (isRelevant())
+				return true;
+		}
+		return false;
+	}
+
+	// Check if the rest of the current line is neither empty nor a comment
+	public boolean isRelevant() {
+
+		skipWhitespace();
+		return _index < _end && _data[_index] != '#';
+	}
+
+	// Check if the current line is parsed completely (only whitespace left)
+	public boolean isFinished() {
+
+		skipWhitespace();
+		return _index == _end;
+	}
+
+	// Jump to next non-whitespace character
+	public void skipWhitespace() {
+
+		for (; _index < _end && isWhitespace(_data[_index]); _index++);
+	}
+
+	// Jump over integer, return false if there is none
+	public boolean skipInteger() {
+
+		int start = _index;
+		for (; _index < _end && isDigit(_data[_index]); _index++);
+		return _index != start;
+	}
+
+	// Jump over float (integer with optional decimal places and sign), return false if there is none
+	public boolean skipFloat() {
+
+		int start = _index;
+		if (_index < _end && _data[_index] == '-')
+			_index++;
+
+		skipInteger();
+
+		if (_index < _end && _data[_index] == '.') {
+			_index++;
+			skipInteger();
+		}
+		return _index != start;
+	}
+
+	// Decode unsigned 32 bit integer, return -1 if there is none
+	public long readUnsignedInt() {
+
+		int start = _index;
+		long value = 0;
+
+		for (; _index < _end && isDigit(_data[_index]); _index++) {
+
+			value = value * 10 + (_data[_index] - '0');
+
+			if (value > 0xffffffffL) {
+				skipInteger();
+				return -1;
+			}
+		}
+		return _index == start ? -1 : value;
+	}
+
+	// Decode float (integer with optional decimal places and sign), return NaN if there is none
+	//   Note: The result is the same as with 'Double.parseDouble()'
+	public double readDecimal() {
+
+		int start = _index;
+		boolean negative = false;
+
+		if (_index < _end && _data[_index] == '-') {
+			negative = true;
+			_index++;
+		}
+
+		// Decode digits as fixed-point number (mantissa * 10^-scale)
+		long mantissa = 0;
+		int digits = 0, scale = 0;
+
+		for (; _index < _end && isDigit(_data[_index]); _index++, digits++)
+			mantissa = mantissa * 10 + (_data[_index] - '0');
+
+		if (_index < _end && _data[_index] == '.') {
+
+			_index++;
+
+			for (; _index < _end && isDigit(_data[_index]); _index++, digits++, scale++)
+				mantissa = mantissa * 10 + (_data[_index] - '0');
+		}
+
+		if (digits == 0)
+			return Double.NaN;
+
+		if (digits > maxExactDigits) {
+			// Mantissa possibly not exactly representable (or overflown)
+			return Double.parseDouble(new String(_data, start, _index - start, StandardCharsets.US_ASCII));
+		}
+
+		// Note: Division of two exactly representable values is rounded correctly
+		double value = mantissa / powersOfTen[scale];
+
+		return negative ? -value : value;
+	}
+
+	// Position of the next line in the input
+	public long position() {
+		return _offset + _next;
+	}
+
+	// Close the underlying stream
+	@Override
+	public void close() throws IOException {
+
+		if (_stream != null)
+			_stream.close();
+	}
+
+	// Set bounds of the current line
+	private void setLine(int begin, int end, int next) {
+
+		_index = begin;
+		_end = end;
+		_next = next;
+	}
+
+	// Read more data from the stream (keep unfinished line), return false at the end of input
+	private boolean fill() throws IOException {
+
+		if (_stream == null)
+			return false;
+
+		// Move unfinished line to the begin of the buffer
+		int rest = _limit - _next;
+
+		if (_next > 0) {
+
+			System.arraycopy(_data, _next, _data, 0, rest);
+
+			_offset += _next;
+			_next = 0;
+			_limit = rest;
+		}
+
+		if (_limit == _data.length)
+			_data = Arrays.copyOf(_data, _data.length * 2);
+
+		int count = _stream.read(_data, _limit, _data.length - _limit);
+
+		if (count <= 0)
+			return false;
+
+		_limit += count;
+		return true;
+	}
+
+	static boolean isWhitespace(byte c) {
+		return c == ' ' || (c >= '\t' && c <= '\r') || (c >= 0x1c && c <= 0x1f);
+	}
+
+	private static boolean isDigit(byte c) {
+		return c >= '0' && c <= '9';
+	}
+
+
+	// Input stream (null, if reading from a byte array)
+	private InputStream _stream;
+
+	// Buffer
+	private byte[] _data;
+	// Number of valid bytes in the buffer
+	private int _limit;
+	// Position of the buffer in the input
+	private long _offset;
+
+	// Current parsing position in the line
+	private int _index;
+	// End of the current line (excluding line break)
+	private int _end;
+	// Begin of the next line
+	private int _next;
+}
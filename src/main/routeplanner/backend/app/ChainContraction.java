@@ -0,0 +1,387 @@
+package routeplanner.backend.app;
+
+import java.util.Arrays;
+
+import routeplanner.backend.model.EdgeCursor;
+import routeplanner.backend.model.GraphStore;
+import routeplanner.backend.model.PathResult;
+
+/*
+ * Contraction of chains of degree-2 nodes
+ *   A node with exactly one way in and one way out (shape point) is called interior node,
+ *   all other nodes are core nodes. Every chain of interior nodes between two core nodes
+ *   is replaced by a single edge in the core graph. Interior nodes keep their index,
+ *   but have no edges in the core graph.
+ *   The chains are stored in direction of travel (two-way roads have two chains),
+ *   so distances and paths of interior nodes could be restored after a search.
+ */
+public class ChainContraction {
+
+	// Contract the chains of the graph
+	public ChainContraction(GraphStore graph) {
+
+		_graph = graph;
+
+		int nodeCount = graph.nodeCount();
+
+		boolean[] isInterior = findInteriorNodes(graph);
+
+		_nodeChains = new int[nodeCount * 2];
+		_nodePositions = new int[nodeCount * 2];
+		Arrays.fill(_nodeChains, -1);
+
+		_firstChain = new int[nodeCount + 1];
+
+		EdgeCursor edges = new EdgeCursor(graph);
+		EdgeCursor chainEdges = new EdgeCursor(graph);
+
+		// Interior nodes which are not on a chain from a core node form rings,
+		//   one node of each ring becomes a core node
+		boolean[] isVisited = new boolean[nodeCount];
+
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < nodeCount; i++) {
+
+				if (pass == 0 ? isInterior[i] : !isInterior[i] || isVisited[i])
+					continue;
+
+				isInterior[i] = false;
+
+				for (edges.reset(i); edges.next(); ) {
+
+					int previous = i, current = edges.target();
+
+					while (isInterior[current] && !isVisited[current]) {
+
+						isVisited[current] = true;
+
+						follow(chainEdges, current, previous);
+						previous = current;
+						current = chainEdges.target();
+					}
+				}
+			}
+		}
+
+		// Create core edges and chains (core nodes in ascending order)
+		int[] offsets = new int[nodeCount + 1];
+		IntList targets = new IntList(), costs = new IntList();
+		IntList chainStarts = new IntList(), chainEnds = new IntList();
+		IntList chainOffsets = new IntList(), chainLengths = new IntList();
+		IntList chainNodes = new IntList(), chainCosts = new IntList();
+
+		for (int i = 0; i < nodeCount; i++) {
+
+			offsets[i] = targets.size();
+			_firstChain[i] = chainStarts.size();
+
+			if (isInterior[i])
+				continue;
+
+			for (edges.reset(i); edges.next(); ) {
+
+				if (!isInterior[edges.target()]) {
+
+					targets.add(edges.target());
+					costs.add(edges.cost());
+					continue;
+				}
+
+				// Follow chain to the next core node
+				int chain = chainStarts.size();
+				chainStarts.add(i);
+				chainOffsets.add(chainNodes.size());
+
+				int previous = i, current = edges.target(), cost = edges.cost();
+
+				while (isInterior[current]) {
+
+					int slot = current * 2 + (_nodeChains[current * 2] < 0 ? 0 : 1);
+					_nodeChains[slot] = chain;
+					_nodePositions[slot] = chainNodes.size();
+					chainNodes.add(current);
+					chainCosts.add(cost);
+
+					follow(chainEdges, current, previous);
+					cost += chainEdges.cost();
+
+					previous = current;
+					current = chainEdges.target();
+				}
+
+				chainEnds.add(current);
+				chainLengths.add(cost);
+
+				targets.add(current);
+				costs.add(cost);
+			}
+		}
+		offsets[nodeCount] = targets.size();
+		_firstChain[nodeCount] = chainStarts.size();
+		chainOffsets.add(chainNodes.size());
+
+		_core = graph.withEdges(offsets, targets.toArray(), costs.toArray());
+
+		_chainStarts = chainStarts.toArray();
+		_chainEnds = chainEnds.toArray();
+		_chainOffsets = chainOffsets.toArray();
+		_chainLengths = chainLengths.toArray();
+		_chainNodes = chainNodes.toArray();
+		_chainCosts = chainCosts.toArray();
+
+		// Chains with a direct edge of the same length (the direct edge is taken for paths)
+		_isShadowed = new boolean[_chainStarts.length];
+
+		for (int chain = 0; chain < _chainStarts.length; chain++)
+			for (edges.reset(_chainStarts[chain]); edges.next(); )
+				if (edges.target() == _chainEnds[chain] && edges.cost() == _chainLengths[chain])
+					_isShadowed[chain] = true;
+	}
+
+	// Graph with contracted chains
+	public GraphStore core() {
+		return _core;
+	}
+
+	// Number of interior nodes
+	public int interiorCount() {
+
+		int count = 0;
+		for (int i = 0; i < _nodeChains.length; i += 2)
+			if (_nodeChains[i] >= 0)
+				count++;
+
+		return count;
+	}
+
+	// Check if the node is part of a chain
+	public boolean isInterior(int node) {
+		return _nodeChains[node * 2] >= 0;
+	}
+
+	// Start node of a chain of the interior node ('index' 0 or 1, -1 if there is no second chain)
+	public int chainStart(int node, int index) {
+
+		int chain = _nodeChains[node * 2 + index];
+
+		return chain < 0 ? -1 : _chainStarts[chain];
+	}
+
+	// Start a search on an interior node: calculate distances to the ends of its chains
+	public void start(Dijkstra dijkstra, int node) {
+
+		for (int i = 0; i < 2; i++) {
+
+			int chain = _nodeChains[node * 2 + i];
+			if (chain < 0)
+				continue;
+
+			int position = _nodePositions[node * 2 + i];
+			int last = _chainOffsets[chain + 1] - 1;
+
+			dijkstra.start(_chainEnds[chain], _chainLengths[chain] - _chainCosts[position], _chainNodes[last]);
+		}
+	}
+
+	// Distance of the node after a search from 'start' (-1 if unreachable)
+	//   'core' is the result of the search on the core graph
+	public int distance(PathResult core, int start, int node) {
+		return isInterior(node) ? resolve(core, start, node, false) : core.distance(node);
+	}
+
+	// Previous node on the path after a search from 'start' (-1 if there is none)
+	//   'core' is the result of the search on the core graph
+	public int previous(PathResult core, int start, int node) {
+
+		if (isInterior(node))
+			return resolve(core, start, node, true);
+
+		int previous = core.previous(node);
+
+		if (previous < 0 || isInterior(previous))
+			return previous;
+
+		// Replace the core node as previous node by the last node of the chain (direct edges are preferred)
+		int cost = core.distance(node) - core.distance(previous);
+
+		for (int chain = _firstChain[previous]; chain < _firstChain[previous + 1]; chain++)
+			if (_chainEnds[chain] == node && _chainLengths[chain] == cost && !_isShadowed[chain])
+				return _chainNodes[_chainOffsets[chain + 1] - 1];
+
+		return previous;
+	}
+
+	// Distance or previous node of an interior node
+	//   Note: Only shorter distances are taken, so the previous nodes could not form a cycle
+	private int resolve(PathResult core, int start, int node, boolean isPrevious) {
+
+		if (node == start)
+			return isPrevious ? -1 : 0;
+
+		int distance = -1, previous = -1;
+
+		// Distances on the chains of the start node
+		for (int i = 0; i < 2 && isInterior(start); i++) {
+
+			int chain = _nodeChains[start * 2 + i];
+			if (chain < 0)
+				continue;
+
+			int position = position(chain, node), startPosition = _nodePositions[start * 2 + i];
+
+			if (position > startPosition && (distance < 0 || _chainCosts[position] - _chainCosts[startPosition] < distance)) {
+
+				distance = _chainCosts[position] - _chainCosts[startPosition];
+				previous = _chainNodes[position - 1];
+			}
+		}
+
+		// Distances over the start of the chains
+		for (int i = 0; i < 2; i++) {
+
+			int chain = _nodeChains[node * 2 + i];
+			if (chain < 0)
+				continue;
+
+			int first = core.distance(_chainStarts[chain]);
+			if (first < 0)
+				continue;
+
+			int position = _nodePositions[node * 2 + i];
+
+			if (distance < 0 || first + _chainCosts[position] < distance) {
+
+				distance = first + _chainCosts[position];
+				previous = position == _chainOffsets[chain] ? _chainStarts[chain] : _chainNodes[position - 1];
+			}
+		}
+		return isPrevious ? previous : distance;
+	}
+
+	// Position of the node in the chain (-1 if the node is not on the chain)
+	private int position(int chain, int node) {
+
+		for (int i = 0; i < 2; i++)
+			if (_nodeChains[node * 2 + i] == chain)
+				return _nodePositions[node * 2 + i];
+
+		return -1;
+	}
+
+	// Move cursor to the edge of an interior node which does not lead back to 'previous'
+	private static void follow(EdgeCursor edges, int node, int previous) {
+
+		for (edges.reset(node); edges.next() && edges.target() == previous; );
+	}
+
+	// Find nodes with exactly one way in and one way out
+	//   One-way: one incoming and one outgoing edge from/to different nodes
+	//   Two-way: two incoming and two outgoing edges from/to the same two different nodes
+	private static boolean[] findInteriorNodes(GraphStore graph) {
+
+		int nodeCount = graph.nodeCount();
+
+		EdgeCursor edges = new EdgeCursor(graph);
+
+		// Count incoming edges and remember up to two sources
+		int[] incoming = new int[nodeCount];
+		int[] sources = new int[nodeCount * 2];
+
+		for (int i = 0; i < nodeCount; i++) {
+			for (edges.reset(i); edges.next(); ) {
+
+				int target = edges.target();
+
+				if (incoming[target] < 2)
+					sources[target * 2 + incoming[target]] = i;
+
+				incoming[target]++;
+			}
+		}
+
+		boolean[] isInterior = new boolean[nodeCount];
+
+		int[] targets = new int[2];
+
+		for (int i = 0; i < nodeCount; i++) {
+
+			int outgoing = 0;
+
+			for (edges.reset(i); edges.next() && outgoing < 3; outgoing++) {
+
+				if (outgoing < 2)
+					targets[outgoing] = edges.target();
+			}
+
+			if (outgoing != incoming[i] || outgoing == 0 || outgoing > 2)
+				continue;
+
+			if (outgoing == 1) {
+
+				isInterior[i] = sources[i * 2] != targets[0] && sources[i * 2] != i && targets[0] != i;
+
+			} else {
+
+				isInterior[i] = targets[0] != targets[1] && targets[0] != i && targets[1] != i
+					&& (sources[i * 2] == targets[0] && sources[i * 2 + 1] == targets[1]
+						|| sources[i * 2] == targets[1] && sources[i * 2 + 1] == targets[0]);
+			}
+		}
+		return isInterior;
+	}
+
+
+	/*
+	 * Growable list of integers
+	 */
+	private static class IntList {
+
+		public void add(int value) {
+
+			if (_size == _data.length)
+				_data = Arrays.copyOf(_data, _data.length * 2);
+
+			_data[_size++] = value;
+		}
+
+		public int size() {
+			return _size;
+		}
+
+		public int[] toArray() {
+			return Arrays.copyOf(_data, _size);
+		}
+
+		private int[] _data = new int[16];
+		private int _size;
+	}
+
+
+	// Original graph
+	private GraphStore _graph;
+
+	// Graph with contracted chains
+	private GraphStore _core;
+
+	// First chain of each core node (chains are ordered by their start node)
+	private int[] _firstChain;
+
+	// Chains of each interior node (two entries per node, -1 if unused) and the position of the node in them
+	private int[] _nodeChains;
+	private int[] _nodePositions;
+
+	// Start, end and length of each chain
+	private int[] _chainStarts;
+	private int[] _chainEnds;
+	private int[] _chainLengths;
+
+	// Chains with a direct edge of the same length from start to end
+	private boolean[] _isShadowed;
+
+	// Position of the interior nodes of each chain (and end of the last chain)
+	private int[] _chainOffsets;
+
+	// Interior nodes of the chains and their distance to the start of the chain
+	private int[] _chainNodes;
+	private int[] _chainCosts;
+}
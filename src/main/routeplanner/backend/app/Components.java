@@ -0,0 +1,250 @@
+package routeplanner.backend.app;
+
+import java.util.Arrays;
+
+import routeplanner.backend.model.EdgeCursor;
+import routeplanner.backend.model.GraphStore;
+
+/*
+ * Index of the strongly connected components of the graph
+ *   Used to detect unreachable targets without a search. Components are
+ *   numbered in reverse topological order (Tarjan), so a component
+ *   could only reach components with a lower number.
+ */
+public class Components {
+
+	// Calculate the components of the graph
+	public Components(GraphStore graph) {
+
+		int nodeCount = graph.nodeCount();
+
+		_components = new int[nodeCount];
+
+		findStrongComponents(graph);
+		findWeakComponents(graph);
+	}
+
+	// Check if there is certainly no path from source to target
+	//   Note: If false is returned, the target could still be unreachable
+	public boolean isUnreachable(int source, int target) {
+
+		int a = _components[source];
+		int b = _components[target];
+
+		if (a == b)
+			return false;
+
+		return b > a || _isClosed[a] || _weak[a] != _weak[b];
+	}
+
+	// Number of strongly connected components
+	public int count() {
+		return _sizes.length;
+	}
+
+	// Number of nodes of the component
+	public int size(int component) {
+		return _sizes[component];
+	}
+
+	// Component of the node
+	public int component(int node) {
+		return _components[node];
+	}
+
+	// Component with the most nodes (-1 if the graph is empty)
+	public int largest() {
+
+		int largest = _sizes.length == 0 ? -1 : 0;
+		for (int i = 1; i < _sizes.length; i++)
+			if (_sizes[i] > _sizes[largest])
+				largest = i;
+
+		return largest;
+	}
+
+	// First node of the component (lowest index)
+	public int first(int component) {
+		return _firsts[component];
+	}
+
+	// Find the strongly connected components with an iterative version of Tarjan's algorithm
+	private void findStrongComponents(GraphStore graph) {
+
+		int nodeCount = graph.nodeCount();
+
+		EdgeCursor edges = new EdgeCursor(graph);
+
+		// Discovery index and lowest reachable index of each node (-1 if not discovered)
+		int[] index = new int[nodeCount];
+		int[] low = new int[nodeCount];
+		Arrays.fill(index, -1);
+		Arrays.fill(_components, -1);
+
+		// Nodes of the not yet finished components
+		int[] stack = new int[nodeCount];
+		int stackSize = 0;
+
+		// Call stack (node, position of the next edge and target of the last edge)
+		int[] callNodes = new int[nodeCount];
+		int[] callPositions = new int[nodeCount];
+		int[] callTargets = new int[nodeCount];
+		int callSize = 0;
+
+		int counter = 0, componentCount = 0;
+		int[] sizes = new int[16], firsts = new int[16];
+
+		for (int start = 0; start < nodeCount; start++) {
+
+			if (index[start] >= 0)
+				continue;
+
+			// Visit start node
+			index[start] = low[start] = counter++;
+			stack[stackSize++] = start;
+			edges.reset(start);
+
+			callNodes[callSize] = start;
+			callPositions[callSize] = edges.position();
+			callTargets[callSize] = start;
+			callSize++;
+
+			while (callSize > 0) {
+
+				int node = callNodes[callSize - 1];
+				edges.resume(node, callPositions[callSize - 1], callTargets[callSize - 1]);
+
+				boolean descended = false;
+
+				while (edges.next()) {
+
+					int neighbor = edges.target();
+
+					if (index[neighbor] < 0) {
+
+						// Save state of the node and visit neighbor
+						callPositions[callSize - 1] = edges.position();
+						callTargets[callSize - 1] = neighbor;
+
+						index[neighbor] = low[neighbor] = counter++;
+						stack[stackSize++] = neighbor;
+						edges.reset(neighbor);
+
+						callNodes[callSize] = neighbor;
+						callPositions[callSize] = edges.position();
+						callTargets[callSize] = neighbor;
+						callSize++;
+
+						descended = true;
+						break;
+					}
+
+					// Neighbor on stack (discovered, but component not finished)
+					if (_components[neighbor] < 0)
+						low[node] = Math.min(low[node], index[neighbor]);
+				}
+
+				if (descended)
+					continue;
+
+				// All edges of the node visited
+				callSize--;
+
+				if (low[node] == index[node]) {
+
+					// Node is root of a component
+					if (componentCount == sizes.length) {
+						sizes = Arrays.copyOf(sizes, sizes.length * 2);
+						firsts = Arrays.copyOf(firsts, firsts.length * 2);
+					}
+
+					firsts[componentCount] = node;
+
+					int member;
+					do {
+						member = stack[--stackSize];
+						_components[member] = componentCount;
+						sizes[componentCount]++;
+						firsts[componentCount] = Math.min(firsts[componentCount], member);
+					} while (member != node);
+
+					componentCount++;
+				}
+
+				if (callSize > 0) {
+
+					int parent = callNodes[callSize - 1];
+					low[parent] = Math.min(low[parent], low[node]);
+				}
+			}
+		}
+
+		_sizes = Arrays.copyOf(sizes, componentCount);
+		_firsts = Arrays.copyOf(firsts, componentCount);
+	}
+
+	// Find the weakly connected components and the components without outgoing edges
+	private void findWeakComponents(GraphStore graph) {
+
+		int count = count();
+
+		EdgeCursor edges = new EdgeCursor(graph);
+
+		_isClosed = new boolean[count];
+		Arrays.fill(_isClosed, true);
+
+		// Union-find over the strongly connected components
+		_weak = new int[count];
+		for (int i = 0; i < count; i++)
+			_weak[i] = i;
+
+		for (int i = 0; i < graph.nodeCount(); i++) {
+
+			int a = _components[i];
+
+			for (edges.reset(i); edges.next(); ) {
+
+				int b = _components[edges.target()];
+
+				if (a != b) {
+
+					_isClosed[a] = false;
+
+					int rootA = find(a), rootB = find(b);
+					if (rootA != rootB)
+						_weak[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+				}
+			}
+		}
+
+		for (int i = 0; i < count; i++)
+			_weak[i] = find(i);
+	}
+
+	// Find representative of the weakly connected component (with path halving)
+	private int find(int component) {
+
+		while (_weak[component] != component) {
+
+			_weak[component] = _weak[_weak[component]];
+			component = _weak[component];
+		}
+		return component;
+	}
+
+
+	// Strongly connected component of each node
+	private int[] _components;
+
+	// Number of nodes of each component
+	private int[] _sizes;
+
+	// First node of each component
+	private int[] _firsts;
+
+	// Weakly connected component of each strongly connected component
+	private int[] _weak;
+
+	// Flag of each component if there are no edges to other components
+	private boolean[] _isClosed;
+}
@@ -0,0 +1,958 @@
+package routeplanner.backend.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import routeplanner.backend.model.EdgeCursor;
+import routeplanner.backend.model.GraphStore;
+import routeplanner.backend.model.IntHeap;
+
+/*
+ * Contraction hierarchy of the graph
+ *   The nodes are contracted one after another (in order of their rank). When a node
+ *   is contracted, a shortcut is added between each pair of its neighbors if the path
+ *   over the node is the only shortest path (no witness path is found). A shortcut
+ *   stores the contracted node (middle node) to restore the original edges.
+ *   After the contraction every edge leads to a node with a higher rank in one
+ *   direction: the upward edges (source has the lower rank) are stored at their source,
+ *   the downward edges (target has the lower rank) are stored at their target.
+ *
+ *   Ordering: The nodes are contracted in rounds. In each round the nodes with a lower
+ *   priority than all of their neighbors (an independent set) are contracted in parallel.
+ *   The priority is the edge difference (shortcuts - removed edges) plus the number
+ *   of already contracted neighbors. Witness searches avoid all nodes contracted in
+ *   the same round, so the shortcuts of independent nodes could be created concurrently.
+ *
+ * File format (little endian):
+ *   [magic] [version] [total number of nodes] [number of upward edges] [number of downward edges]
+ *   [fingerprint of the graph (long)]
+ *   [rank]...         FOR EACH NODE
+ *   [offset]...       FOR EACH NODE + 1 (index of first upward edge of the node)
+ *   [trgID]...        FOR EACH UPWARD EDGE
+ *   [cost]...         FOR EACH UPWARD EDGE
+ *   [middle]...       FOR EACH UPWARD EDGE (middle node of a shortcut, -1 for an original edge)
+ *   [offset]...       FOR EACH NODE + 1 (index of first downward edge to the node)
+ *   [srcID]...        FOR EACH DOWNWARD EDGE
+ *   [cost]...         FOR EACH DOWNWARD EDGE
+ *   [middle]...       FOR EACH DOWNWARD EDGE
+ */
+public class ContractionHierarchy {
+
+	// Exception class
+
+	static class BadHierarchyFileException extends Exception {
+
+		private static final long serialVersionUID = -6604728517094863025L;
+
+		public BadHierarchyFileException(String reason) { super(reason); }
+	}
+
+
+	// Identification of the file format
+	static final int magic = 0x48435052;
+	static final int version = 1;
+
+	// Size of the header in bytes
+	private static final int headerSize = 5 * Integer.BYTES + Long.BYTES;
+
+	// Size of the write buffer in bytes
+	private static final int bufferSize = 1 << 20;
+
+
+	// Contract all nodes of the graph
+	public static ContractionHierarchy create(GraphStore graph) {
+
+		return new Builder(graph).build();
+	}
+
+	// Read hierarchy of the graph from file (mapped into memory, not copied)
+	public static ContractionHierarchy read(java.nio.file.Path file, GraphStore graph) throws BadHierarchyFileException, IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			if (channel.size() < headerSize)
+				throw new BadHierarchyFileException("File too short for header");
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerSize).order(ByteOrder.LITTLE_ENDIAN);
+
+			if (header.getInt() != magic)
+				throw new BadHierarchyFileException("Not a hierarchy file");
+
+			int fileVersion = header.getInt();
+			if (fileVersion != version)
+				throw new BadHierarchyFileException("Unsupported hierarchy file version " + fileVersion);
+
+			int nodeCount = header.getInt();
+			int upCount = header.getInt();
+			int downCount = header.getInt();
+			long fingerprint = header.getLong();
+
+			if (nodeCount != graph.nodeCount() || fingerprint != graph.fingerprint())
+				throw new BadHierarchyFileException("Hierarchy created for a different graph");
+
+			if (upCount < 0 || downCount < 0)
+				throw new BadHierarchyFileException("Bad edge count");
+
+			long size = headerSize + (3L * nodeCount + 2 + 3L * upCount + 3L * downCount) * Integer.BYTES;
+
+			if (channel.size() != size)
+				throw new BadHierarchyFileException("File size does not match header");
+
+			long position = headerSize;
+
+			IntBuffer ranks = map(channel, position, nodeCount).asIntBuffer();
+			position += (long)nodeCount * Integer.BYTES;
+
+			IntBuffer[] up = new IntBuffer[4], down = new IntBuffer[4];
+			for (IntBuffer[] edges : new IntBuffer[][] { up, down }) {
+
+				int count = edges == up ? upCount : downCount;
+
+				edges[0] = map(channel, position, nodeCount + 1).asIntBuffer();
+				position += ((long)nodeCount + 1) * Integer.BYTES;
+
+				for (int i = 1; i < 4; i++) {
+
+					edges[i] = map(channel, position, count).asIntBuffer();
+					position += (long)count * Integer.BYTES;
+				}
+			}
+
+			ContractionHierarchy hierarchy = new ContractionHierarchy(ranks, up[0], up[1], up[2], up[3], down[0], down[1], down[2], down[3]);
+
+			hierarchy.check();
+
+			return hierarchy;
+		}
+	}
+
+	// Write hierarchy of the graph to file
+	public void write(java.nio.file.Path file, GraphStore graph) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(magic);
+			buffer.putInt(version);
+			buffer.putInt(nodeCount());
+			buffer.putInt(_upTargets.limit());
+			buffer.putInt(_downSources.limit());
+			buffer.putLong(graph.fingerprint());
+
+			for (IntBuffer values : new IntBuffer[] { _ranks, _upOffsets, _upTargets, _upCosts, _upMiddles,
+					_downOffsets, _downSources, _downCosts, _downMiddles }) {
+
+				for (int i = 0; i < values.limit(); i++) {
+
+					if (buffer.remaining() < Integer.BYTES)
+						flush(channel, buffer);
+
+					buffer.putInt(values.get(i));
+				}
+			}
+
+			flush(channel, buffer);
+		}
+	}
+
+	// Rank of the node (order of contraction)
+	public int rank(int node) {
+		return _ranks.get(node);
+	}
+
+	public int nodeCount() {
+		return _ranks.limit();
+	}
+
+	// Number of upward and downward edges (including shortcuts)
+	public int edgeCount() {
+		return _upTargets.limit() + _downSources.limit();
+	}
+
+	// Number of shortcuts
+	public int shortcutCount() {
+
+		int count = 0;
+		for (int i = 0; i < _upMiddles.limit(); i++)
+			if (_upMiddles.get(i) >= 0)
+				count++;
+		for (int i = 0; i < _downMiddles.limit(); i++)
+			if (_downMiddles.get(i) >= 0)
+				count++;
+
+		return count;
+	}
+
+	// Position of the first upward edge of the node (edges of node i end at 'upBegin(i + 1)')
+	public int upBegin(int node) {
+		return _upOffsets.get(node);
+	}
+
+	// Target of the upward edge
+	public int upTarget(int edge) {
+		return _upTargets.get(edge);
+	}
+
+	public int upCost(int edge) {
+		return _upCosts.get(edge);
+	}
+
+	// Middle node of the upward edge (-1 if it is an original edge)
+	public int upMiddle(int edge) {
+		return _upMiddles.get(edge);
+	}
+
+	// Position of the first downward edge to the node (edges to node i end at 'downBegin(i + 1)')
+	public int downBegin(int node) {
+		return _downOffsets.get(node);
+	}
+
+	// Source of the downward edge
+	public int downSource(int edge) {
+		return _downSources.get(edge);
+	}
+
+	public int downCost(int edge) {
+		return _downCosts.get(edge);
+	}
+
+	// Middle node of the downward edge (-1 if it is an original edge)
+	public int downMiddle(int edge) {
+		return _downMiddles.get(edge);
+	}
+
+	// Append the original edges of an edge from 'source' to 'target' to the path
+	//   Nodes (without 'source') and the cost of the edges leading to them are appended in order of the path
+	public void unpack(int source, int target, int cost, int middle, Path path) {
+
+		int[] stack = path._stack;
+		int size = 0;
+
+		stack = push(stack, size++, source, target, cost, middle);
+
+		while (size > 0) {
+
+			size--;
+			int a = stack[size * 4], b = stack[size * 4 + 1], c = stack[size * 4 + 2], m = stack[size * 4 + 3];
+
+			if (m < 0) {
+
+				path.add(b, c);
+				continue;
+			}
+
+			// Shortcut a -> b over m: downward edge a -> m (stored at m) and upward edge m -> b (stored at m)
+			int first = findDown(m, a), second = findUp(m, b);
+
+			// Note: Second part is pushed first, so it is unpacked last
+			stack = push(stack, size++, m, b, upCost(second), upMiddle(second));
+			stack = push(stack, size++, a, m, downCost(first), downMiddle(first));
+		}
+
+		path._stack = stack;
+	}
+
+	// Node after 'source' on the unpacked shortcut from 'source' over 'middle'
+	public int secondNode(int source, int middle) {
+
+		// First part of the shortcut: downward edge from 'source' to the middle node
+		for (int node = middle; ; ) {
+
+			int next = downMiddle(findDown(node, source));
+
+			if (next < 0)
+				return node;
+
+			node = next;
+		}
+	}
+
+	// Node before 'target' on the unpacked shortcut over 'middle' to 'target'
+	public int penultimateNode(int target, int middle) {
+
+		// Last part of the shortcut: upward edge from the middle node to 'target'
+		for (int node = middle; ; ) {
+
+			int next = upMiddle(findUp(node, target));
+
+			if (next < 0)
+				return node;
+
+			node = next;
+		}
+	}
+
+	// Check ranks and edges (read from file)
+	private void check() throws BadHierarchyFileException {
+
+		int nodeCount = nodeCount();
+
+		boolean[] found = new boolean[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+
+			int rank = rank(i);
+
+			if (rank < 0 || rank >= nodeCount || found[rank])
+				throw new BadHierarchyFileException("Bad rank order");
+
+			found[rank] = true;
+		}
+
+		for (int direction = 0; direction < 2; direction++) {
+
+			IntBuffer offsets = direction == 0 ? _upOffsets : _downOffsets;
+			IntBuffer neighbors = direction == 0 ? _upTargets : _downSources;
+			IntBuffer middles = direction == 0 ? _upMiddles : _downMiddles;
+
+			if (offsets.get(0) != 0 || offsets.get(nodeCount) != neighbors.limit())
+				throw new BadHierarchyFileException("Bad edge offsets");
+
+			for (int i = 0; i < nodeCount; i++) {
+
+				if (offsets.get(i) > offsets.get(i + 1))
+					throw new BadHierarchyFileException("Bad edge offset of node " + i);
+
+				for (int j = offsets.get(i); j < offsets.get(i + 1); j++) {
+
+					int neighbor = neighbors.get(j), middle = middles.get(j);
+
+					// Edges lead to a higher node, middle nodes are lower than both ends
+					if (neighbor < 0 || neighbor >= nodeCount || rank(neighbor) <= rank(i))
+						throw new BadHierarchyFileException("Bad edge of node " + i);
+
+					if (middle < -1 || middle >= nodeCount || middle >= 0 && rank(middle) >= rank(i))
+						throw new BadHierarchyFileException("Bad middle node of node " + i);
+				}
+			}
+		}
+	}
+
+	// Map a section of 'count' integers of the file
+	private static ByteBuffer map(FileChannel channel, long position, long count) throws BadHierarchyFileException, IOException {
+
+		if (count * Integer.BYTES > Integer.MAX_VALUE)
+			throw new BadHierarchyFileException("Section too large to be mapped");
+
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	// Write buffer content to the channel
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+		buffer.flip();
+
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+
+		buffer.clear();
+	}
+
+	// Downward edge from 'source' to 'node'
+	private int findDown(int node, int source) {
+
+		for (int i = downBegin(node); i < downBegin(node + 1); i++)
+			if (downSource(i) == source)
+				return i;
+
+		throw new IllegalStateException("Missing edge of shortcut");
+	}
+
+	// Upward edge from 'node' to 'target'
+	private int findUp(int node, int target) {
+
+		for (int i = upBegin(node); i < upBegin(node + 1); i++)
+			if (upTarget(i) == target)
+				return i;
+
+		throw new IllegalStateException("Missing edge of shortcut");
+	}
+
+	// Put edge on the unpacking stack (grows if needed)
+	private static int[] push(int[] stack, int index, int source, int target, int cost, int middle) {
+
+		if (index * 4 + 4 > stack.length)
+			stack = Arrays.copyOf(stack, stack.length * 2);
+
+		stack[index * 4] = source;
+		stack[index * 4 + 1] = target;
+		stack[index * 4 + 2] = cost;
+		stack[index * 4 + 3] = middle;
+
+		return stack;
+	}
+
+	ContractionHierarchy(IntBuffer ranks, IntBuffer upOffsets, IntBuffer upTargets, IntBuffer upCosts, IntBuffer upMiddles,
+			IntBuffer downOffsets, IntBuffer downSources, IntBuffer downCosts, IntBuffer downMiddles) {
+
+		_ranks = ranks;
+		_upOffsets = upOffsets;
+		_upTargets = upTargets;
+		_upCosts = upCosts;
+		_upMiddles = upMiddles;
+		_downOffsets = downOffsets;
+		_downSources = downSources;
+		_downCosts = downCosts;
+		_downMiddles = downMiddles;
+	}
+
+
+	/*
+	 * Path of original edges (filled by 'unpack()')
+	 */
+	public static class Path {
+
+		// Add node reached over an edge with the cost
+		void add(int node, int cost) {
+
+			if (_size == _nodes.length) {
+
+				_nodes = Arrays.copyOf(_nodes, _size * 2);
+				_costs = Arrays.copyOf(_costs, _size * 2);
+			}
+
+			_nodes[_size] = node;
+			_costs[_size] = cost;
+			_size++;
+		}
+
+		// Remove all nodes
+		public void clear() {
+			_size = 0;
+		}
+
+		public int size() {
+			return _size;
+		}
+
+		public int node(int index) {
+			return _nodes[index];
+		}
+
+		// Cost of the edge leading to the node
+		public int cost(int index) {
+			return _costs[index];
+		}
+
+		private int[] _nodes = new int[64];
+		private int[] _costs = new int[64];
+		private int _size;
+
+		// Edges to unpack (source, target, cost, middle)
+		private int[] _stack = new int[64];
+	}
+
+
+	/*
+	 * Contraction of the nodes
+	 *   Edges of each node are stored in growing arrays as triples (neighbor, cost, middle node).
+	 */
+	private static class Builder {
+
+		// Maximum number of finished nodes of a witness search
+		static final int witnessLimit = 500;
+
+		Builder(GraphStore graph) {
+
+			_nodeCount = graph.nodeCount();
+
+			_out = new int[_nodeCount][];
+			_in = new int[_nodeCount][];
+			_outSize = new int[_nodeCount];
+			_inSize = new int[_nodeCount];
+
+			_ranks = new int[_nodeCount];
+			Arrays.fill(_ranks, -1);
+
+			_priorities = new int[_nodeCount];
+			_deleted = new int[_nodeCount];
+
+			// Count edges to allocate the arrays
+			EdgeCursor edges = new EdgeCursor(graph);
+
+			for (int i = 0; i < _nodeCount; i++) {
+				for (edges.reset(i); edges.next(); ) {
+
+					_outSize[i]++;
+					_inSize[edges.target()]++;
+				}
+			}
+
+			for (int i = 0; i < _nodeCount; i++) {
+
+				_out[i] = new int[Math.max(1, _outSize[i]) * 3];
+				_in[i] = new int[Math.max(1, _inSize[i]) * 3];
+				_outSize[i] = _inSize[i] = 0;
+			}
+
+			// Add edges (without loops, only the cheapest of parallel edges)
+			for (int i = 0; i < _nodeCount; i++)
+				for (edges.reset(i); edges.next(); )
+					if (edges.target() != i)
+						addEdge(i, edges.target(), edges.cost(), -1);
+		}
+
+		ContractionHierarchy build() {
+
+			// Initial priorities
+			IntStream.range(0, _nodeCount).parallel().forEach((node) -> {
+				_priorities[node] = priority(node, witness());
+			});
+
+			int[] remaining = new int[_nodeCount];
+			for (int i = 0; i < _nodeCount; i++)
+				remaining[i] = i;
+
+			int remainingCount = _nodeCount;
+			int rank = 0;
+
+			while (remainingCount > 0) {
+
+				int count = remainingCount;
+				int[] candidates = remaining;
+
+				// Select nodes with lower priority than all remaining neighbors
+				int[] selected = IntStream.range(0, count).parallel()
+					.map((i) -> candidates[i])
+					.filter((node) -> isLocalMinimum(node))
+					.toArray();
+
+				// Assign ranks (marks the nodes contracted for the witness searches)
+				for (int node : selected)
+					_ranks[node] = rank++;
+
+				// Find shortcuts in parallel
+				int[][] shortcuts = IntStream.range(0, selected.length).parallel()
+					.mapToObj((i) -> findShortcuts(selected[i], witness(), true))
+					.toArray(int[][]::new);
+
+				// Add shortcuts
+				for (int i = 0; i < selected.length; i++)
+					for (int j = 1; j < shortcuts[i][0] * 3 + 1; j += 3)
+						addEdge(shortcuts[i][j], shortcuts[i][j + 1], shortcuts[i][j + 2], selected[i]);
+
+				for (int node : selected)
+					countDeleted(node);
+
+				// Remove edges to the contracted nodes, then update priorities of the neighbors
+				//   Note: Separate passes, because the witness searches read the edges of other nodes
+				int[] neighbors = neighbors(selected);
+
+				IntStream.range(0, neighbors.length).parallel().forEach((i) -> {
+					removeContracted(neighbors[i]);
+				});
+
+				IntStream.range(0, neighbors.length).parallel().forEach((i) -> {
+					_priorities[neighbors[i]] = priority(neighbors[i], witness());
+				});
+
+				// Remove contracted nodes from the remaining ones
+				int next = 0;
+				for (int i = 0; i < count; i++)
+					if (_ranks[remaining[i]] < 0)
+						remaining[next++] = remaining[i];
+
+				remainingCount = next;
+			}
+
+			return createHierarchy();
+		}
+
+		// Check if the node has a lower priority than its remaining neighbors (node index as tie breaker)
+		private boolean isLocalMinimum(int node) {
+
+			for (int k = 0; k < 2; k++) {
+
+				int[] edges = k == 0 ? _out[node] : _in[node];
+				int size = k == 0 ? _outSize[node] : _inSize[node];
+
+				for (int i = 0; i < size * 3; i += 3) {
+
+					int neighbor = edges[i];
+
+					if (_ranks[neighbor] >= 0)
+						continue;
+
+					if (_priorities[neighbor] < _priorities[node]
+							|| _priorities[neighbor] == _priorities[node] && neighbor < node)
+						return false;
+				}
+			}
+			return true;
+		}
+
+		// Increase the number of contracted neighbors of the remaining neighbors of the node
+		private void countDeleted(int node) {
+
+			for (int i = 0; i < _outSize[node] * 3; i += 3)
+				if (_ranks[_out[node][i]] < 0)
+					_deleted[_out[node][i]]++;
+
+			for (int i = 0; i < _inSize[node] * 3; i += 3) {
+
+				int neighbor = _in[node][i];
+
+				if (_ranks[neighbor] >= 0)
+					continue;
+
+				// Count neighbors with edges in both directions only once
+				boolean isCounted = false;
+				for (int j = 0; j < _outSize[node] * 3 && !isCounted; j += 3)
+					isCounted = _out[node][j] == neighbor;
+
+				if (!isCounted)
+					_deleted[neighbor]++;
+			}
+		}
+
+		// Remaining neighbors of the nodes (without duplicates)
+		private int[] neighbors(int[] nodes) {
+
+			return Arrays.stream(nodes).flatMap((node) -> IntStream.concat(
+					IntStream.range(0, _outSize[node]).map((i) -> _out[node][i * 3]),
+					IntStream.range(0, _inSize[node]).map((i) -> _in[node][i * 3])))
+				.filter((neighbor) -> _ranks[neighbor] < 0)
+				.distinct()
+				.toArray();
+		}
+
+		// Priority of the node: edge difference and number of contracted neighbors
+		private int priority(int node, WitnessSearch witness) {
+
+			int shortcuts = findShortcuts(node, witness, false)[0];
+
+			int edges = 0;
+			for (int i = 0; i < _outSize[node] * 3; i += 3)
+				if (_ranks[_out[node][i]] < 0)
+					edges++;
+			for (int i = 0; i < _inSize[node] * 3; i += 3)
+				if (_ranks[_in[node][i]] < 0)
+					edges++;
+
+			return shortcuts - edges + _deleted[node];
+		}
+
+		// Find shortcuts needed to contract the node: [count] ([source] [target] [cost])... (only count if not 'store')
+		private int[] findShortcuts(int node, WitnessSearch witness, boolean store) {
+
+			int[] result = new int[1];
+
+			int[] out = _out[node], in = _in[node];
+
+			// Maximal cost of an outgoing edge
+			int maxOut = 0;
+			for (int j = 0; j < _outSize[node] * 3; j += 3)
+				if (_ranks[out[j]] < 0)
+					maxOut = Math.max(maxOut, out[j + 1]);
+
+			for (int i = 0; i < _inSize[node] * 3; i += 3) {
+
+				int source = in[i];
+
+				if (_ranks[source] >= 0)
+					continue;
+
+				// Search paths from source which avoid the node
+				witness.search(source, node, in[i + 1] + maxOut);
+
+				for (int j = 0; j < _outSize[node] * 3; j += 3) {
+
+					int target = out[j];
+
+					if (target == source || _ranks[target] >= 0)
+						continue;
+
+					int cost = in[i + 1] + out[j + 1];
+
+					if (witness.distance(target) <= cost)
+						continue;
+
+					if (store) {
+
+						if (result[0] * 3 + 4 > result.length)
+							result = Arrays.copyOf(result, Math.max(16, result.length * 2));
+
+						result[result[0] * 3 + 1] = source;
+						result[result[0] * 3 + 2] = target;
+						result[result[0] * 3 + 3] = cost;
+					}
+					result[0]++;
+				}
+			}
+			return result;
+		}
+
+		// Add edge or decrease the cost of an existing edge
+		private void addEdge(int source, int target, int cost, int middle) {
+
+			for (int i = 0; i < _outSize[source] * 3; i += 3) {
+
+				if (_out[source][i] != target)
+					continue;
+
+				if (cost < _out[source][i + 1]) {
+
+					_out[source][i + 1] = cost;
+					_out[source][i + 2] = middle;
+
+					for (int j = 0; j < _inSize[target] * 3; j += 3) {
+
+						if (_in[target][j] == source) {
+
+							_in[target][j + 1] = cost;
+							_in[target][j + 2] = middle;
+						}
+					}
+				}
+				return;
+			}
+
+			_out[source] = append(_out[source], _outSize[source]++, target, cost, middle);
+			_in[target] = append(_in[target], _inSize[target]++, source, cost, middle);
+		}
+
+		// Append triple to the edges (grows if needed)
+		private static int[] append(int[] edges, int index, int neighbor, int cost, int middle) {
+
+			if (index * 3 + 3 > edges.length)
+				edges = Arrays.copyOf(edges, edges.length * 2);
+
+			edges[index * 3] = neighbor;
+			edges[index * 3 + 1] = cost;
+			edges[index * 3 + 2] = middle;
+
+			return edges;
+		}
+
+		// Remove edges from/to contracted nodes
+		private void removeContracted(int node) {
+
+			_outSize[node] = removeContracted(_out[node], _outSize[node]);
+			_inSize[node] = removeContracted(_in[node], _inSize[node]);
+		}
+
+		private int removeContracted(int[] edges, int size) {
+
+			int next = 0;
+			for (int i = 0; i < size * 3; i += 3) {
+
+				if (_ranks[edges[i]] >= 0)
+					continue;
+
+				edges[next] = edges[i];
+				edges[next + 1] = edges[i + 1];
+				edges[next + 2] = edges[i + 2];
+				next += 3;
+			}
+			return next / 3;
+		}
+
+		// Create upward and downward edges from the remaining edges of each node
+		private ContractionHierarchy createHierarchy() {
+
+			IntBuffer upOffsets = IntBuffer.allocate(_nodeCount + 1);
+			IntBuffer downOffsets = IntBuffer.allocate(_nodeCount + 1);
+
+			int upCount = 0, downCount = 0;
+
+			for (int i = 0; i < _nodeCount; i++) {
+
+				upOffsets.put(i, upCount);
+				downOffsets.put(i, downCount);
+
+				for (int j = 0; j < _outSize[i] * 3; j += 3)
+					if (_ranks[_out[i][j]] > _ranks[i])
+						upCount++;
+
+				for (int j = 0; j < _inSize[i] * 3; j += 3)
+					if (_ranks[_in[i][j]] > _ranks[i])
+						downCount++;
+			}
+			upOffsets.put(_nodeCount, upCount);
+			downOffsets.put(_nodeCount, downCount);
+
+			IntBuffer upTargets = IntBuffer.allocate(upCount), upCosts = IntBuffer.allocate(upCount);
+			IntBuffer upMiddles = IntBuffer.allocate(upCount);
+			IntBuffer downSources = IntBuffer.allocate(downCount), downCosts = IntBuffer.allocate(downCount);
+			IntBuffer downMiddles = IntBuffer.allocate(downCount);
+
+			for (int i = 0; i < _nodeCount; i++) {
+
+				for (int j = 0; j < _outSize[i] * 3; j += 3) {
+
+					if (_ranks[_out[i][j]] > _ranks[i]) {
+
+						upTargets.put(_out[i][j]);
+						upCosts.put(_out[i][j + 1]);
+						upMiddles.put(_out[i][j + 2]);
+					}
+				}
+
+				for (int j = 0; j < _inSize[i] * 3; j += 3) {
+
+					if (_ranks[_in[i][j]] > _ranks[i]) {
+
+						downSources.put(_in[i][j]);
+						downCosts.put(_in[i][j + 1]);
+						downMiddles.put(_in[i][j + 2]);
+					}
+				}
+			}
+
+			return new ContractionHierarchy(IntBuffer.wrap(_ranks), upOffsets, upTargets.clear(), upCosts.clear(), upMiddles.clear(),
+				downOffsets, downSources.clear(), downCosts.clear(), downMiddles.clear());
+		}
+
+		// Witness search of the current thread
+		private WitnessSearch witness() {
+
+			WitnessSearch witness = _witness.get();
+
+			if (witness == null) {
+
+				witness = new WitnessSearch(this);
+				_witness.set(witness);
+			}
+			return witness;
+		}
+
+
+		// Number of nodes
+		private int _nodeCount;
+
+		// Outgoing and incoming edges of each node (neighbor, cost, middle node)
+		private int[][] _out;
+		private int[][] _in;
+		private int[] _outSize;
+		private int[] _inSize;
+
+		// Rank of each contracted node (-1 if not contracted)
+		private int[] _ranks;
+
+		// Priority of each remaining node
+		private int[] _priorities;
+
+		// Number of contracted neighbors of each node
+		private int[] _deleted;
+
+		// Witness search of each thread
+		private ThreadLocal<WitnessSearch> _witness = new ThreadLocal<WitnessSearch>();
+	}
+
+
+	/*
+	 * Limited Dijkstra search on the remaining nodes
+	 *   Only the touched nodes are reset for the next search.
+	 */
+	private static class WitnessSearch {
+
+		WitnessSearch(Builder builder) {
+
+			_builder = builder;
+
+			_distances = new int[builder._nodeCount];
+			Arrays.fill(_distances, Integer.MAX_VALUE);
+
+			_touched = new int[64];
+			_queue = IntHeap.create(builder._nodeCount);
+		}
+
+		// Search from source without 'avoided' node up to the distance 'limit'
+		void search(int source, int avoided, int limit) {
+
+			for (int i = 0; i < _touchedCount; i++)
+				_distances[_touched[i]] = Integer.MAX_VALUE;
+
+			_touchedCount = 0;
+			IntHeap.clear(_queue);
+
+			touch(source, 0);
+			IntHeap.insert(_queue, source, 0);
+
+			int finished = 0;
+
+			while (!IntHeap.isEmpty(_queue) && finished < Builder.witnessLimit) {
+
+				int key = IntHeap.peekKey(_queue);
+				int node = IntHeap.poll(_queue);
+
+				if (key > _distances[node])
+					continue;
+
+				if (key > limit)
+					break;
+
+				finished++;
+
+				int[] edges = _builder._out[node];
+
+				for (int i = 0; i < _builder._outSize[node] * 3; i += 3) {
+
+					int target = edges[i];
+
+					if (target == avoided || _builder._ranks[target] >= 0)
+						continue;
+
+					int distance = key + edges[i + 1];
+
+					if (distance < _distances[target]) {
+
+						touch(target, distance);
+						IntHeap.insert(_queue, target, distance);
+					}
+				}
+			}
+		}
+
+		// Distance found by the last search (Integer.MAX_VALUE if not found)
+		int distance(int node) {
+			return _distances[node];
+		}
+
+		private void touch(int node, int distance) {
+
+			if (_distances[node] == Integer.MAX_VALUE) {
+
+				if (_touchedCount == _touched.length)
+					_touched = Arrays.copyOf(_touched, _touched.length * 2);
+
+				_touched[_touchedCount++] = node;
+			}
+			_distances[node] = distance;
+		}
+
+		private Builder _builder;
+
+		// Tentative distance of each node
+		private int[] _distances;
+
+		// Nodes with a distance
+		private int[] _touched;
+		private int _touchedCount;
+
+		private int[] _queue;
+	}
+
+
+	// Rank of each node
+	private IntBuffer _ranks;
+
+	// Upward edges of each node (target, cost and middle node)
+	private IntBuffer _upOffsets;
+	private IntBuffer _upTargets;
+	private IntBuffer _upCosts;
+	private IntBuffer _upMiddles;
+
+	// Downward edges to each node (source, cost and middle node)
+	private IntBuffer _downOffsets;
+	private IntBuffer _downSources;
+	private IntBuffer _downCosts;
+	private IntBuffer _downMiddles;
+}
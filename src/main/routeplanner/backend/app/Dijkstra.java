@@ -6,129 +6,297 @@ import routeplanner.backend.model.*;
  * Implementation of the Dijkstra algorithm
  */
 public class Dijkstra {
-	
+
 	// Calculate shortest paths from start to all other nodes
 	public void calculate(int start) {
-		
+
+		initialize(start);
+
+		while (finishNext());
+	}
+
+	// Calculate shortest paths from start until the path to target is known
+	//   Note: Only the distances of finished nodes are valid (see 'isFinished()')
+	public void calculate(int start, int target) {
+
+		initialize(start);
+
+		resume(target);
+	}
+
+	// Continue the last calculation until the path to target is known
+	public void resume(int target) {
+
+		if (_chains != null && _chains.isInterior(target)) {
+
+			// Distance of an interior node is known if the starts of its chains are finished
+			for (int i = 0; i < 2; i++) {
+
+				int node = _chains.chainStart(target, i);
+
+				while (node >= 0 && !isFinished(node) && finishNext());
+			}
+
+		} else {
+
+			while (!isFinished(target) && finishNext());
+		}
+	}
+
+	// Check if the path to the node is known
+	public boolean isFinished(int node) {
+
+		if (_chains != null && _chains.isInterior(node)) {
+
+			for (int i = 0; i < 2; i++) {
+
+				int start = _chains.chainStart(node, i);
+
+				if (start >= 0 && distance(start) > 0)
+					return false;
+			}
+			return true;
+		}
+
+		// Note: Finished nodes have a negative distance, a distance of 0 could not be decreased
+		return distance(node) <= 0;
+	}
+
+	// Distance of a finished node (-1 if not finished)
+	//   Note: Interior nodes of contracted chains are never finished
+	public int finishedDistance(int node) {
+
+		int d = -distance(node);
+
+		return d < 0 ? -1 : d;
+	}
+
+	// Initialize calculation from the start node
+	private void initialize(int start) {
+
+		_start = start;
+
 		// Initialize start node with distance 0
-		setDistance(_data[start], 0);
-		IntHeap.insert(_queue, start, 0);
-		
-		while (!IntHeap.isEmpty(_queue)) {
-			
+		start(start, 0, -1);
+
+		if (_chains != null && _chains.isInterior(start))
+			_chains.start(this, start);
+	}
+
+	// Finish next node of the queue, return false if the queue is empty
+	private boolean finishNext() {
+
+		while (!_queue.isEmpty()) {
+
 			// Remove next node from queue
-			int currentId = IntHeap.poll(_queue);
-			int[] current = _data[currentId];
-			int currentDistance = distance(current);
+			int currentId = _queue.poll();
+			int currentDistance = distance(currentId);
 
 			// Skip node if already finished
 			if (currentDistance < 0)
 				continue;
 
 			// Mark node finished
-			setDistance(current, -currentDistance);
+			setDistance(currentId, -currentDistance);
+			_finishedCount++;
 
+			for (_edges.reset(currentId); _edges.next(); ) {
 
-			for (int i = 0; i < edgeCount(current); i++) {
-				
 				// Check if there is an unknown (shorter) path
-				int neighbor = edgeTarget(current, i);
-				int newDistance = edgeCost(current, i) + currentDistance;
-				
-				if (newDistance < distance(_data[neighbor])) {
-					
-					setPrevious(_data[neighbor], newDistance, currentId);
-					
+				int neighbor = _edges.target();
+				int newDistance = _edges.cost() + currentDistance;
+
+				if (newDistance < distance(neighbor)) {
+
+					setPrevious(neighbor, newDistance, currentId);
+
 					// Add node with new distance to queue
-					IntHeap.insert(_queue, neighbor, newDistance);
+					_queue.insert(neighbor, newDistance);
 				}
 			}
+			return true;
 		}
+		return false;
 	}
 
-	// Get the calculated distances
-	public void getResult(Node[] nodes) {
-		
-		for (int i = 0; i < _data.length; i++) {
-			
-			int d = -distance(_data[i]);
-			int p = previous(_data[i]);
-			
-			if (d < 0)
-				nodes[i].setDistance(-1);
-			else
-				nodes[i].setDistance(d);
-			
-			if (p == -1)
-				nodes[i].setPrevious(null);
-			else
-				nodes[i].setPrevious(nodes[p]);
+	// Add a node with known distance to the queue (before the calculation)
+	public void start(int node, int distance, int previous) {
+
+		if (distance < distance(node)) {
+
+			setPrevious(node, distance, previous);
+			_queue.insert(node, distance);
 		}
 	}
-	
+
+	// Number of finished nodes since the last reset
+	public int finishedCount() {
+		return _finishedCount;
+	}
+
+	// View of the distances and previous nodes of the finished nodes
+	//   Note: With contracted chains the interior nodes are resolved on access
+	public PathResult result() {
+		return _chains == null ? _result : _expandedResult;
+	}
+
+	public Dijkstra() {
+		this(IntQueue.Type.BINARY);
+	}
+
+	// Engine with the type of the priority queue
+	public Dijkstra(IntQueue.Type queueType) {
+		_queueType = queueType;
+	}
+
+	// Copy of a prepared engine (shares the prepared data, for calculation on another thread)
+	public Dijkstra(Dijkstra prepared) {
+
+		_queueType = prepared._queueType;
+		_graph = prepared._graph;
+		_chains = prepared._chains;
+
+		allocate();
+	}
+
+	// Prepare data for calculation on the graph with contracted chains
+	public void prepare(ChainContraction chains) {
+
+		prepare(chains.core());
+
+		_chains = chains;
+	}
+
 	// Prepare data for calculation
-	public void prepare(Node[] nodes) {
-		
-		_queue = IntHeap.create(nodes.length);
-
-		_data = new int[nodes.length][];
-		
-		for (int i = 0; i < nodes.length; i++) {
-			
-			Edge[] edges = nodes[i].edges();
-			
-			int[] n = new int[edges.length * 2 + 2];
-			
-			for (int j = 0; j < edges.length; j++) {
-				
-				n[j * 2 + 2] = edges[j].cost();
-				n[j * 2 + 3] = edges[j].trg().id();
-			}
-			
-			_data[i] = n;
-		}
+	public void prepare(GraphStore graph) {
+
+		_graph = graph;
+		_chains = null;
+
+		allocate();
 	}
-	
+
+	// Allocate data of a calculation
+	private void allocate() {
+
+		_edges = new EdgeCursor(_graph);
+
+		_queue = IntQueue.create(_queueType, _graph.nodeCount());
+
+		_data = new int[_graph.nodeCount() * 2];
+		_touched = new int[_graph.nodeCount()];
+
+		for (int i = 0; i < _graph.nodeCount(); i++)
+			clear(i);
+
+		_touchedCount = 0;
+	}
+
 	// Reset distances and path for new calculation
+	//   Note: Only the nodes reached by the last calculation are reset
 	public void reset() {
-		
-		for (int i = 0; i < _data.length; i++)
-			setPrevious(_data[i], Integer.MAX_VALUE, -1);
-	}
-	
-	private static int edgeCount(int[] node) {
-		return (node.length - 2) / 2;
+
+		_queue.clear();
+		_finishedCount = 0;
+
+		for (int i = 0; i < _touchedCount; i++)
+			clear(_touched[i]);
+
+		_touchedCount = 0;
 	}
-	
-	private static int edgeTarget(int[] source, int index) {
-		return source[index * 2 + 3];
+
+	private int distance(int node) {
+		return _data[node * 2];
 	}
-	
-	private static int edgeCost(int[] source, int index) {
-		return source[index * 2 + 2];
+
+	private void setDistance(int node, int distance) {
+		_data[node * 2] = distance;
 	}
-	
-	private static int distance(int[] node) {
-		return node[0];
+
+	private int previous(int node) {
+		return _data[node * 2 + 1];
 	}
-	
-	private static void setDistance(int[] node, int distance) {
-		node[0] = distance;
+
+	// Set distance and previous node (and remember the node if it is reached the first time)
+	private void setPrevious(int node, int distance, int previous) {
+
+		if (_data[node * 2] == Integer.MAX_VALUE)
+			_touched[_touchedCount++] = node;
+
+		_data[node * 2] = distance;
+		_data[node * 2 + 1] = previous;
 	}
 
-	private static int previous(int[] node) {
-		return node[1];
+	// Set node not reached
+	private void clear(int node) {
+		_data[node * 2] = Integer.MAX_VALUE;
+		_data[node * 2 + 1] = -1;
 	}
+
+
+	// Graph structure
+	private GraphStore _graph;
 	
-	private static void setPrevious(int[] node, int distance, int previous) {
-		node[0] = distance;
-		node[1] = previous;
-	}
+	// Iterator over the edges of the current node
+	private EdgeCursor _edges;
 	
-
-	// Data for calculation
-	private int[][] _data;
+	// Contracted chains (null if not contracted)
+	private ChainContraction _chains;
 	
+	// Start node of the last calculation
+	private int _start;
+
+	// Distance and previous node of each node
+	private int[] _data;
+
+	// Nodes reached since the last reset
+	private int[] _touched;
+	private int _touchedCount;
+
+	// Type of the priority queue
+	private IntQueue.Type _queueType;
+
 	// Priority queue for non-finished nodes
-	int[] _queue;
+	IntQueue _queue;
+
+	// Number of finished nodes
+	private int _finishedCount;
+
+	// View of the result
+	private PathResult _result = new Result();
+	private PathResult _expandedResult = new ExpandedResult();
+
+
+	/*
+	 * Result view on the data of the calculation
+	 */
+	private class Result implements PathResult {
+
+		@Override
+		public int distance(int node) {
+			return finishedDistance(node);
+		}
+
+		@Override
+		public int previous(int node) {
+			return finishedDistance(node) < 0 ? -1 : Dijkstra.this.previous(node);
+		}
+	}
+
+
+	/*
+	 * Result with the interior nodes of the contracted chains (resolved on their chains)
+	 */
+	private class ExpandedResult implements PathResult {
+
+		@Override
+		public int distance(int node) {
+			return _chains.distance(_result, _start, node);
+		}
+
+		@Override
+		public int previous(int node) {
+			return _chains.previous(_result, _start, node);
+		}
+	}
 }
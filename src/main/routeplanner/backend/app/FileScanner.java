@@ -1,8 +1,6 @@
 package routeplanner.backend.app;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.Arrays;
 
 import routeplanner.backend.model.*;
 
@@ -41,103 +39,43 @@ public class FileScanner {
 		public BadRequestException(String reason) { super(reason); }
 	}
 	
-	// Represents the position of a character in a string
-	static class StringPosition {
-		String string = null;
-		int index = -1;
-	}
-	
-	// Jump to next non-whitespace character
-	private static int skipWhitespace(String str, int startIndex) {
-		
-		int i = startIndex;
-		for (; i < str.length()
-				&& Character.isWhitespace(str.charAt(i)); i++);
-		return i;
-	}
-	
-	// Jump to next non-digit character
-	private static int skipInteger(String str, int startIndex) {
-		
-		int i = startIndex;
-		for (; i < str.length()
-				&& Character.isDigit(str.charAt(i)); i++);
-		return i;
-	}
-	
-	// Jump over float (integer with optional decimal places and sign)
-	private static int skipFloat(String str, int startIndex) {
-		
-	  if (str.charAt(startIndex) == '-')
-	    startIndex++;
-	  
-		int i = skipInteger(str, startIndex);
-
-		if (i < str.length() && str.charAt(i) == '.') {
-			
-			i = skipInteger(str, i + 1);
-		}
-		return i;
-	}
-	
-	// Return next line from reader, which is not a comment
-	private static void getNextRelevantLine(StringPosition pos, BufferedReader reader) throws IOException {
-		
-		String line;
-		while ((line = reader.readLine()) != null) {
-			
-			int i = skipWhitespace(line, 0);
-			if (i < line.length() && line.charAt(i) != '#') {
-				pos.string = line;
-				pos.index = i;
-				return;
-			}
-		}
-		pos.string = null;
-		pos.index = -1;
-	}
-	
 	// Read the file header (number of nodes and edges)
-	private static void readHeader(int[] cnt, BufferedReader reader,
-			StringPosition pos, Logger logger, boolean isTolerant)
+	static void readHeader(int[] cnt, ByteLineReader reader,
+			Logger logger, boolean isTolerant)
 				throws BadHeaderException, IOException {
 		
 		try {
 			
 			logger.instruction("Number of nodes in graph:");
 
-			getNextRelevantLine(pos, reader);
-			if (pos.string == null)
+			if (!reader.nextRelevantLine())
 				throw new BadHeaderException("No header provided");
-				
-			int end = skipInteger(pos.string, pos.index);
 			
-			try {
-				cnt[0] = Integer.parseUnsignedInt(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
+			long value = reader.readUnsignedInt();
+			if (value < 0)
 				throw new BadHeaderException("No node count provided [uint]");
-			}
 			
-			end = skipWhitespace(pos.string, end);
-			if (end < pos.string.length())
+			if (!reader.isFinished())
 				throw new BadHeaderException("Too much data in the first line");
 			
+			cnt[0] = (int)value;
+			
 			logger.instruction("Number of edges in graph:");
 
-			getNextRelevantLine(pos, reader);
-			if (pos.string == null)
+			if (!reader.nextRelevantLine())
 				throw new BadHeaderException("No second line provided");
 			
-			end = skipInteger(pos.string, pos.index);
-			try {
-				cnt[1] = Integer.parseUnsignedInt(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
+			value = reader.readUnsignedInt();
+			if (value < 0)
 				throw new BadHeaderException("No edge count provided [uint]");
-			}
 			
-			end = skipWhitespace(pos.string, end);
-			if (end < pos.string.length())
+			if (!reader.isFinished())
 				throw new BadHeaderException("Too much data in the second line");	
+			
+			cnt[1] = (int)value;
+
+			if (cnt[0] < 0 || cnt[1] < 0)
+				throw new BadHeaderException("Too much nodes or edges");
 
 		} catch (BadHeaderException ex) {
 			
@@ -146,7 +84,7 @@ public class FileScanner {
 				logger.warning(System.lineSeparator() + ex.getMessage());
 				logger.warning("Error in header. Try again...");
 
-				readHeader(cnt, reader, pos, logger, isTolerant);
+				readHeader(cnt, reader, logger, isTolerant);
 
 			} else {
 
@@ -155,71 +93,112 @@ public class FileScanner {
 		}
 	}
 	
-	// Parse a node from the reader
-	private static FmiNode readNode(BufferedReader reader, StringPosition pos,
-			Node[] nodes, Logger logger, boolean isTolerant)
-				throws BadNodeException, IOException {
+	// Parse the node in the current line into the arrays (indexed by nodeID)
+	//   Note: Ambiguous nodeIDs are only detected if 'found' is provided
+	static int parseNode(ByteLineReader reader, double[] latitudes,
+			double[] longitudes, boolean[] found) throws BadNodeException {
 		
-		try {
+		long id = reader.readUnsignedInt();
+		if (id < 0)
+			throw new BadNodeException("No nodeID provided [uint]");
+		
+		reader.skipWhitespace();
 
-			getNextRelevantLine(pos, reader);
-			if (pos.string == null)
-				throw new BadNodeException("Unexpected end of file");
-			
-			int id;
-			int end = skipInteger(pos.string, pos.index);
-			try {
-				id = Integer.parseUnsignedInt(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
-				throw new BadNodeException("No nodeID provided [uint]");
-			}
-			
-			pos.index = skipWhitespace(pos.string, end);
+		if (!reader.skipInteger())
+			throw new BadNodeException("No nodeID2 provided [uint]");
+
+		reader.skipWhitespace();
+		
+		double latitude = reader.readDecimal();
+		if (Double.isNaN(latitude))
+			throw new BadNodeException("No latitude provided [double]");
+		
+		reader.skipWhitespace();
+		
+		double longitude = reader.readDecimal();
+		if (Double.isNaN(longitude))
+			throw new BadNodeException("No longitude provided [double]");
+		
+		reader.skipWhitespace();
 
-			end = skipInteger(pos.string, pos.index);
-			if (pos.index == end)
-				throw new BadNodeException("No nodeID2 provided [uint]");
+		if (!reader.skipFloat())
+			throw new BadNodeException("No elevation provided [double]");
 
-			pos.index = skipWhitespace(pos.string, end);
-			
-			double latitude;
-			end = skipFloat(pos.string, pos.index);
-			try {
-				latitude = Double.parseDouble(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
-				throw new BadNodeException("No latitude provided [double]");
-			}
-			
-			pos.index = skipWhitespace(pos.string, end);
+		if (!reader.isFinished())
+			throw new BadNodeException("Unexpected data in line");
+		
+		if (id >= latitudes.length)
+			throw new BadNodeException("nodeID out of range");
+		
+		if (found != null) {
 			
-			double longitude;
-			end = skipFloat(pos.string, pos.index);
-			try {
-				longitude = Double.parseDouble(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
-				throw new BadNodeException("No longitude provided [double]");
-			}
+			if (found[(int)id])
+				throw new BadNodeException("Ambiguous nodeID");
 			
-			pos.index = skipWhitespace(pos.string, end);
-
-			end = skipFloat(pos.string, pos.index);
-			if (pos.index == end)
-				throw new BadNodeException("No elevation provided [double]");
+			found[(int)id] = true;
+		}
+		
+		latitudes[(int)id] = latitude;
+		longitudes[(int)id] = longitude;
+		
+		return (int)id;
+	}
+	
+	// Parse the edge in the current line into the arrays (on position 'index')
+	static void parseEdge(ByteLineReader reader, int index, int nodeCount,
+			int[] sources, int[] targets, int[] costs) throws BadEdgeException {
+		
+		long srcId = reader.readUnsignedInt();
+		if (srcId < 0)
+			throw new BadEdgeException("No srcID provided [uint]");
+		
+		reader.skipWhitespace();
+		
+		long trgId = reader.readUnsignedInt();
+		if (trgId < 0)
+			throw new BadEdgeException("No trgID provided [uint]");
+		
+		reader.skipWhitespace();
+		
+		long cost = reader.readUnsignedInt();
+		if (cost < 0)
+			throw new BadEdgeException("No cost provided [uint]");
+		
+		reader.skipWhitespace();
+		
+		if (!reader.skipInteger())
+			throw new BadEdgeException("No type provided [uint]");
+		
+		reader.skipWhitespace();
 
-			end = skipWhitespace(pos.string, end);
-			if (end < pos.string.length())
-				throw new BadNodeException("Unexpected data in line");
-			
+		if (!reader.skipFloat())
+			throw new BadEdgeException("No maxspeed provided [double]");
+		
+		if (!reader.isFinished())
+			throw new BadEdgeException("Unexpected data in line");
+		
+		if (srcId >= nodeCount)
+			throw new BadEdgeException("srcID out of range");
+		
+		if (trgId >= nodeCount)
+			throw new BadEdgeException("trgID out of range");
+		
+		sources[index] = (int)srcId;
+		targets[index] = (int)trgId;
+		costs[index] = (int)cost;
+	}
+	
+	// Read a node from the reader
+	private static void readNode(ByteLineReader reader, double[] latitudes,
+			double[] longitudes, boolean[] found, Logger logger, boolean isTolerant)
+				throws BadNodeException, IOException {
+		
+		try {
 
-			FmiNode node = new FmiNode(id, latitude, longitude);	
-			
-			if (node.id() < 0 || node.id() >= nodes.length)
-				throw new BadNodeException("nodeID out of range");
-			
-			if (nodes[node.id()] != null)
-				throw new BadNodeException("Ambiguous nodeID");
+			if (!reader.nextRelevantLine())
+				throw new BadNodeException("Unexpected end of file");
 			
-			return node;
+			parseNode(reader, latitudes, longitudes, found);
 			
 		} catch (BadNodeException ex) {
 			
@@ -228,7 +207,7 @@ public class FileScanner {
 				logger.warning(System.lineSeparator() + ex.getMessage());
 				logger.warning("Error in node. Try again...");
 				
-				return readNode(reader, pos, nodes, logger, isTolerant);
+				readNode(reader, latitudes, longitudes, found, logger, isTolerant);
 
 			} else {
 				
@@ -237,71 +216,17 @@ public class FileScanner {
 		}
 	}
 
-	// Parse an edge from the reader
-	private static FmiEdge readEdge(BufferedReader reader, StringPosition pos,
-			Node[] nodes, Logger logger, boolean isTolerant)
+	// Read an edge from the reader
+	private static void readEdge(ByteLineReader reader, int index, int[] sources,
+			int[] targets, int[] costs, int nodeCount, Logger logger, boolean isTolerant)
 				throws BadEdgeException, IOException {
 		
 		try {
 
-			getNextRelevantLine(pos, reader);
-			if (pos.string == null)
+			if (!reader.nextRelevantLine())
 				throw new BadEdgeException("Unexpected end of file");
 			
-			int srcId;
-			int end = skipInteger(pos.string, pos.index);
-			try {
-				srcId = Integer.parseUnsignedInt(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
-				throw new BadEdgeException("No srcID provided [uint]");
-			}
-			
-			pos.index = skipWhitespace(pos.string, end);
-			
-			int trgId;
-			end = skipInteger(pos.string, pos.index);
-			try {
-				trgId = Integer.parseUnsignedInt(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
-				throw new BadEdgeException("No trgID provided [uint]");
-			}
-			
-			pos.index = skipWhitespace(pos.string, end);
-			
-			int cost;
-			end = skipInteger(pos.string, pos.index);
-			try {
-				cost = Integer.parseUnsignedInt(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
-				throw new BadEdgeException("No cost provided [uint]");
-			}
-			
-			pos.index = skipWhitespace(pos.string, end);
-			
-			end = skipInteger(pos.string, pos.index);
-			if (pos.index == end)
-				throw new BadEdgeException("No type provided [uint]");
-			
-			pos.index = skipWhitespace(pos.string, end);
-
-			end = skipFloat(pos.string, pos.index);
-			if (pos.index == end)
-				throw new BadEdgeException("No maxspeed provided [double]");
-			
-			end = skipWhitespace(pos.string, end);
-			if (end < pos.string.length())
-				throw new BadEdgeException("Unexpected data in line");
-			
-
-			FmiEdge edge = new FmiEdge(srcId, trgId, cost);	
-			
-			if (edge.srcId() < 0 || edge.srcId() >= nodes.length)
-				throw new BadEdgeException("srcID out of range");
-			
-			if (edge.trgId() < 0 || edge.trgId() >= nodes.length)
-				throw new BadEdgeException("trgID out of range");
-			
-			return edge;
+			parseEdge(reader, index, nodeCount, sources, targets, costs);
 			
 		} catch (BadEdgeException ex) {
 			
@@ -310,7 +235,7 @@ public class FileScanner {
 				logger.warning(System.lineSeparator() + ex.getMessage());
 				logger.warning("Error in edge. Try again...");
 				
-				return readEdge(reader, pos, nodes, logger, isTolerant);
+				readEdge(reader, index, sources, targets, costs, nodeCount, logger, isTolerant);
 
 			} else {
 				
@@ -320,85 +245,72 @@ public class FileScanner {
 	}
 
 	// Read the graph description file
-	public static Node[] readStructure(BufferedReader reader, Logger logger, boolean isTolerant)
+	public static GraphStore readStructure(ByteLineReader reader, Logger logger, boolean isTolerant)
 			throws BadHeaderException, BadNodeException, BadEdgeException, IOException {
 		
-		StringPosition pos = new StringPosition();
 		int cnt[] = new int[2];
 		
-		readHeader(cnt, reader, pos, logger, isTolerant);
+		readHeader(cnt, reader, logger, isTolerant);
 		
 		logger.info("Header of file parsed successfully" + System.lineSeparator()
 			+ "  " + cnt[0] + " nodes" + System.lineSeparator()
 			+ "  " + cnt[1] + " edges" + System.lineSeparator());
 		logger.instruction("Reading nodes. Input format: [nodeID] [nodeID2] [latitude] [longitude] [elevation]");
 		
-		Node[] nodes = new Node[cnt[0]];
-		Edge[] edges = new Edge[cnt[1]];
+		double[] latitudes = new double[cnt[0]];
+		double[] longitudes = new double[cnt[0]];
+		boolean[] found = new boolean[cnt[0]];
 		
-		for (int i = 0; i < cnt[0]; i++) {
-			
-			FmiNode t = readNode(reader, pos, nodes, logger, isTolerant);
-
-			nodes[t.id()] = new Node(t.id(), t.latitude(), t.longitude(), new Edge[0]);
-		}
+		for (int i = 0; i < cnt[0]; i++)
+			readNode(reader, latitudes, longitudes, found, logger, isTolerant);
+		
+		found = null;
 		
 		logger.info("Nodes parsed" + System.lineSeparator());
 		logger.instruction("Reading edges. Input format: [srcID] [trgID] [cost] [type] [maxspeed]");
 		
-		for (int i = 0; i < cnt[1]; i++) {
-			
-			FmiEdge t = readEdge(reader, pos, nodes, logger, isTolerant);
-			
-			edges[i] = new Edge(nodes[t.srcId()], nodes[t.trgId()], t.cost());
-			
-			// Note: Inefficient if there are a lot of edges per node
-			//         but reduces memory footprint
-			Node src = nodes[t.srcId()];
-			src.setEdges(Arrays.copyOf(src.edges(), src.edges().length + 1));
-			src.edges()[src.edges().length - 1] = edges[i];
-		}
+		int[] sources = new int[cnt[1]];
+		int[] targets = new int[cnt[1]];
+		int[] costs = new int[cnt[1]];
+		
+		for (int i = 0; i < cnt[1]; i++)
+			readEdge(reader, i, sources, targets, costs, cnt[0], logger, isTolerant);
 		
 		logger.info("Edges parsed" + System.lineSeparator());
+		
+		GraphStore graph = GraphStore.fromEdges(latitudes, longitudes, sources, targets, costs);
+		
 		logger.info("Adjacency graph created");	
 
-		return nodes;
+		return graph;
 	}
 	
-	// Read a longitude and latitude (request for next node)
-	public static double[] readCoordinates(BufferedReader reader, StringPosition pos,
+	// Read a longitude and latitude (request for next node) into 'result', return false at the end of input
+	public static boolean readCoordinates(ByteLineReader reader, double[] result,
 			Logger logger, boolean isTolerant) throws BadRequestException, IOException {
 		
 		try {
 			
-			getNextRelevantLine(pos, reader);
-
-			if (pos.string == null)
-				return null;
+			if (!reader.nextRelevantLine())
+				return false;
 				
-			double latitude;
-			int end = skipFloat(pos.string, pos.index);
-			try {
-				latitude = Double.parseDouble(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
+			double latitude = reader.readDecimal();
+			if (Double.isNaN(latitude))
 				throw new BadRequestException("No latitude provided [double]");
-			}
 			
-			pos.index = skipWhitespace(pos.string, end);
+			reader.skipWhitespace();
 			
-			double longitude;
-			end = skipFloat(pos.string, pos.index);
-			try {
-				longitude = Double.parseDouble(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
+			double longitude = reader.readDecimal();
+			if (Double.isNaN(longitude))
 				throw new BadRequestException("No longitude provided [double]");
-			}
 			
-			end = skipWhitespace(pos.string, end);
-			if (end < pos.string.length())
+			if (!reader.isFinished())
 				throw new BadRequestException("Unexpected data in line");	
 
-			return new double[] { longitude, latitude };
+			result[0] = longitude;
+			result[1] = latitude;
+			
+			return true;
 
 		} catch (BadRequestException ex) {
 			
@@ -407,7 +319,7 @@ public class FileScanner {
 				logger.warning(System.lineSeparator() + ex.getMessage());
 				logger.warning("Error in request. Try again...");
 				
-				return readCoordinates(reader, pos, logger, isTolerant);
+				return readCoordinates(reader, result, logger, isTolerant);
 				
 			} else {
 				
@@ -416,33 +328,26 @@ public class FileScanner {
 		}
 	}
 
-	// Read a node ID (request for one-to-many or next node)
-	public static int readId(BufferedReader reader, StringPosition pos,
-			int maxId, Logger logger, boolean isTolerant) throws BadRequestException, IOException {
+	// Read a node ID (request for one-to-many or next node), return -1 at the end of input
+	public static int readId(ByteLineReader reader, int maxId,
+			Logger logger, boolean isTolerant) throws BadRequestException, IOException {
 		
 		try {
 			
-			getNextRelevantLine(pos, reader);
-			
-			if (pos.string == null)
+			if (!reader.nextRelevantLine())
 				return -1;
 			
-			int id;
-			int end = skipInteger(pos.string, pos.index);
-			try {
-				id = Integer.parseUnsignedInt(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
+			long id = reader.readUnsignedInt();
+			if (id < 0)
 				throw new BadRequestException("No nodeID provided [uint]");
-			}
 			
-			end = skipWhitespace(pos.string, end);
-			if (end < pos.string.length())
+			if (!reader.isFinished())
 				throw new BadRequestException("Unexpected data in line");
 			
-			if (id < 0 || id >= maxId)
+			if (id >= maxId)
 				throw new BadRequestException("nodeID out of range");
 			
-			return id;
+			return (int)id;
 
 		} catch (BadRequestException ex) {
 			
@@ -451,7 +356,7 @@ public class FileScanner {
 				logger.warning(System.lineSeparator() + ex.getMessage());
 				logger.warning("Error in request. Try again...");
 				
-				return readId(reader, pos, maxId, logger, isTolerant);
+				return readId(reader, maxId, logger, isTolerant);
 				
 			} else {
 				
@@ -460,47 +365,39 @@ public class FileScanner {
 		}
 	}
 	
-	// Read a single request
-	public static int[] readRequest(BufferedReader reader, StringPosition pos,
+	// Read a single request [srcID, trgID] into 'result', return false at the end of input
+	public static boolean readRequest(ByteLineReader reader, int[] result,
 			int maxId, Logger logger, boolean isTolerant)
 				throws BadRequestException, IOException {
 		
 		try {
 			
-			getNextRelevantLine(pos, reader);
-
-			if (pos.string == null)
-				return null;
+			if (!reader.nextRelevantLine())
+				return false;
 				
-			int srcId;
-			int end = skipInteger(pos.string, pos.index);
-			try {
-				srcId = Integer.parseUnsignedInt(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
+			long srcId = reader.readUnsignedInt();
+			if (srcId < 0)
 				throw new BadRequestException("No srcID provided [uint]");
-			}
 			
-			pos.index = skipWhitespace(pos.string, end);
+			reader.skipWhitespace();
 			
-			int trgId;
-			end = skipInteger(pos.string, pos.index);
-			try {
-				trgId = Integer.parseUnsignedInt(pos.string.substring(pos.index, end));
-			} catch (NumberFormatException ex) {
+			long trgId = reader.readUnsignedInt();
+			if (trgId < 0)
 				throw new BadRequestException("No trgID provided [uint]");
-			}
 			
-			end = skipWhitespace(pos.string, end);
-			if (end < pos.string.length())
+			if (!reader.isFinished())
 				throw new BadRequestException("Unexpected data in line");	
 			
-			if (srcId < 0 || srcId >= maxId)
+			if (srcId >= maxId)
 				throw new BadRequestException("srcID out of range");
 			
-			if (trgId < 0 || trgId >= maxId)
+			if (trgId >= maxId)
 				throw new BadRequestException("trgID out of range");
 
-			return new int[] { srcId, trgId };
+			result[0] = (int)srcId;
+			result[1] = (int)trgId;
+			
+			return true;
 
 		} catch (BadRequestException ex) {
 			
@@ -509,7 +406,7 @@ public class FileScanner {
 				logger.warning(System.lineSeparator() + ex.getMessage());
 				logger.warning("Error in request. Try again...");
 				
-				return readRequest(reader, pos, maxId, logger, isTolerant);
+				return readRequest(reader, result, maxId, logger, isTolerant);
 				
 			} else {
 				
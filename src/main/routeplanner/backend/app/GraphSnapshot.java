@@ -0,0 +1,235 @@
+package routeplanner.backend.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import routeplanner.backend.model.EdgeCursor;
+import routeplanner.backend.model.GraphStore;
+
+/*
+ * Binary snapshot of the graph structure
+ *
+ * File format (little endian):
+ *   [magic] [version] [total number of nodes] [total number of edges] [flags]
+ *   [latitude]...     FOR EACH NODE (double)
+ *   [longitude]...    FOR EACH NODE (double)
+ *   [offset]...       FOR EACH NODE + 1 (index of first edge of the node)
+ *   [trgID]...        FOR EACH EDGE
+ *   [cost]...         FOR EACH EDGE
+ *   [nodeID]...       FOR EACH NODE (external ID, only if flag 'reordered' is set)
+ */
+public class GraphSnapshot {
+
+	// Exception class
+
+	static class BadSnapshotException extends Exception {
+
+		private static final long serialVersionUID = -3517230815806153712L;
+
+		public BadSnapshotException(String reason) { super(reason); }
+	}
+
+
+	// Identification of the file format
+	static final int magic = 0x53475052;
+	static final int version = 2;
+
+	// Flags
+	static final int reorderedFlag = 1;
+
+	// Size of the header in bytes
+	private static final int headerSize = 5 * Integer.BYTES;
+
+	// Size of the write buffer in bytes
+	private static final int bufferSize = 1 << 20;
+
+
+	// Write the graph to a snapshot file
+	public static void write(GraphStore graph, Path file) throws IOException {
+
+		int nodeCount = graph.nodeCount();
+		int edgeCount = graph.edgeCount();
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(magic);
+			buffer.putInt(version);
+			buffer.putInt(nodeCount);
+			buffer.putInt(edgeCount);
+			buffer.putInt(graph.isReordered() ? reorderedFlag : 0);
+
+			for (int i = 0; i < nodeCount; i++) {
+				reserve(channel, buffer, Double.BYTES);
+				buffer.putDouble(graph.latitude(i));
+			}
+
+			for (int i = 0; i < nodeCount; i++) {
+				reserve(channel, buffer, Double.BYTES);
+				buffer.putDouble(graph.longitude(i));
+			}
+
+			EdgeCursor edges = new EdgeCursor(graph);
+
+			int offset = 0;
+			for (int i = 0; i < nodeCount; i++) {
+				reserve(channel, buffer, Integer.BYTES);
+				buffer.putInt(offset);
+				offset += graph.degree(i);
+			}
+			reserve(channel, buffer, Integer.BYTES);
+			buffer.putInt(edgeCount);
+
+			for (int i = 0; i < nodeCount; i++) {
+				for (edges.reset(i); edges.next(); ) {
+					reserve(channel, buffer, Integer.BYTES);
+					buffer.putInt(edges.target());
+				}
+			}
+
+			for (int i = 0; i < nodeCount; i++) {
+				for (edges.reset(i); edges.next(); ) {
+					reserve(channel, buffer, Integer.BYTES);
+					buffer.putInt(edges.cost());
+				}
+			}
+
+			if (graph.isReordered()) {
+				for (int i = 0; i < nodeCount; i++) {
+					reserve(channel, buffer, Integer.BYTES);
+					buffer.putInt(graph.externalId(i));
+				}
+			}
+
+			flush(channel, buffer);
+		}
+	}
+
+	// Read the graph from a snapshot file (used without copying, if 'offHeap')
+	public static GraphStore read(Path file, boolean offHeap) throws BadSnapshotException, IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			if (channel.size() < headerSize)
+				throw new BadSnapshotException("File too short for header");
+
+			IntBuffer header = map(channel, 0, headerSize).asIntBuffer();
+
+			if (header.get(0) != magic)
+				throw new BadSnapshotException("Not a graph snapshot");
+
+			if (header.get(1) != version)
+				throw new BadSnapshotException("Unsupported snapshot version " + header.get(1));
+
+			int nodeCount = header.get(2);
+			int edgeCount = header.get(3);
+			boolean isReordered = (header.get(4) & reorderedFlag) != 0;
+
+			if (nodeCount < 0 || edgeCount < 0)
+				throw new BadSnapshotException("Bad node or edge count");
+
+			long position = headerSize;
+			long latitudePos = position;
+			position += (long)nodeCount * Double.BYTES;
+			long longitudePos = position;
+			position += (long)nodeCount * Double.BYTES;
+			long offsetPos = position;
+			position += ((long)nodeCount + 1) * Integer.BYTES;
+			long targetPos = position;
+			position += (long)edgeCount * Integer.BYTES;
+			long costPos = position;
+			position += (long)edgeCount * Integer.BYTES;
+			long idPos = position;
+			if (isReordered)
+				position += (long)nodeCount * Integer.BYTES;
+
+			if (channel.size() != position)
+				throw new BadSnapshotException("File size does not match header");
+
+			// Map sections (copied onto the heap if not 'offHeap')
+			DoubleBuffer latitudes = map(channel, latitudePos, (long)nodeCount * Double.BYTES).asDoubleBuffer();
+			DoubleBuffer longitudes = map(channel, longitudePos, (long)nodeCount * Double.BYTES).asDoubleBuffer();
+			IntBuffer offsets = map(channel, offsetPos, ((long)nodeCount + 1) * Integer.BYTES).asIntBuffer();
+			IntBuffer targets = map(channel, targetPos, (long)edgeCount * Integer.BYTES).asIntBuffer();
+			IntBuffer costs = map(channel, costPos, (long)edgeCount * Integer.BYTES).asIntBuffer();
+
+			if (!offHeap) {
+
+				latitudes = DoubleBuffer.allocate(nodeCount).put(latitudes).clear();
+				longitudes = DoubleBuffer.allocate(nodeCount).put(longitudes).clear();
+				offsets = IntBuffer.allocate(nodeCount + 1).put(offsets).clear();
+				targets = IntBuffer.allocate(edgeCount).put(targets).clear();
+				costs = IntBuffer.allocate(edgeCount).put(costs).clear();
+			}
+
+			IntBuffer ids = null;
+
+			if (isReordered) {
+
+				ids = map(channel, idPos, (long)nodeCount * Integer.BYTES).asIntBuffer();
+
+				if (!offHeap)
+					ids = IntBuffer.allocate(nodeCount).put(ids).clear();
+
+				boolean[] found = new boolean[nodeCount];
+				for (int i = 0; i < nodeCount; i++) {
+
+					int id = ids.get(i);
+
+					if (id < 0 || id >= nodeCount || found[id])
+						throw new BadSnapshotException("Bad nodeID order");
+
+					found[id] = true;
+				}
+			}
+
+			if (offsets.get(0) != 0 || offsets.get(nodeCount) != edgeCount)
+				throw new BadSnapshotException("Bad edge offsets");
+
+			for (int i = 0; i < nodeCount; i++)
+				if (offsets.get(i) > offsets.get(i + 1))
+					throw new BadSnapshotException("Bad edge offset of node " + i);
+
+			for (int i = 0; i < edgeCount; i++)
+				if (targets.get(i) < 0 || targets.get(i) >= nodeCount)
+					throw new BadSnapshotException("trgID out of range");
+
+			return new GraphStore(latitudes, longitudes, offsets, targets, costs, ids);
+		}
+	}
+
+	// Map a section of the file
+	private static ByteBuffer map(FileChannel channel, long position, long size) throws BadSnapshotException, IOException {
+
+		if (size > Integer.MAX_VALUE)
+			throw new BadSnapshotException("Section too large to be mapped");
+
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	// Make sure there are 'size' bytes left in the buffer
+	private static void reserve(FileChannel channel, ByteBuffer buffer, int size) throws IOException {
+
+		if (buffer.remaining() < size)
+			flush(channel, buffer);
+	}
+
+	// Write buffer content to the channel
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+		buffer.flip();
+
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+
+		buffer.clear();
+	}
+}
@@ -0,0 +1,308 @@
+package routeplanner.backend.app;
+
+import java.util.Arrays;
+
+import routeplanner.backend.model.*;
+
+/*
+ * Point-to-point query on a contraction hierarchy
+ *   A forward search from the start on the upward edges and a backward search from the
+ *   target on the downward edges (both only to nodes with a higher rank) run alternately.
+ *   The shortest path leads over the node with the highest rank on it, where both searches
+ *   meet. A search stops if its minimal queue key is not smaller than the best path found.
+ *   Nodes reached with a longer distance than over a higher node are not expanded
+ *   (stall-on-demand). Shortcuts are unpacked for the result path.
+ */
+public class HierarchyDijkstra {
+
+	// Calculate shortest path from start to target, return the distance (-1 if unreachable)
+	public int calculate(int start, int target) {
+
+		_start = start;
+		_target = target;
+		_distance = Integer.MAX_VALUE;
+		_meeting = -1;
+
+		for (int direction = forward; direction <= backward; direction++) {
+
+			int node = direction == forward ? start : target;
+
+			setPrevious(direction, node, 0, -1, -1);
+			_queues[direction].insert(node, 0);
+		}
+
+		while (true) {
+
+			boolean isForward = isActive(forward), isBackward = isActive(backward);
+
+			if (!isForward && !isBackward)
+				break;
+
+			// Continue search with the smaller distance
+			if (isForward && (!isBackward || _queues[forward].peekKey() <= _queues[backward].peekKey()))
+				finishNext(forward);
+			else
+				finishNext(backward);
+		}
+
+		return _distance == Integer.MAX_VALUE ? -1 : _distance;
+	}
+
+	// Get the calculated path (into the cleared buffer, only the nodes on the path are set)
+	public void getResult(PathBuffer result) {
+
+		if (_meeting < 0)
+			return;
+
+		// Nodes from the meeting node to the start
+		int count = 0;
+		for (int node = _meeting; node != -1; node = previous(forward, node)) {
+
+			if (count == _forwardNodes.length)
+				_forwardNodes = Arrays.copyOf(_forwardNodes, count * 2);
+
+			_forwardNodes[count++] = node;
+		}
+
+		// Edges from the start to the meeting node
+		_path.clear();
+
+		for (int i = count - 2; i >= 0; i--) {
+
+			int edge = edge(forward, _forwardNodes[i]);
+
+			_hierarchy.unpack(_forwardNodes[i + 1], _forwardNodes[i], _hierarchy.upCost(edge), _hierarchy.upMiddle(edge), _path);
+		}
+
+		// Edges from the meeting node to the target (previous nodes of the backward search are the next nodes)
+		for (int node = _meeting; node != _target; node = previous(backward, node)) {
+
+			int edge = edge(backward, node);
+
+			_hierarchy.unpack(node, previous(backward, node), _hierarchy.downCost(edge), _hierarchy.downMiddle(edge), _path);
+		}
+
+		// Set distances and previous nodes along the path
+		int current = _start;
+		int distance = 0;
+
+		result.set(current, 0, -1);
+
+		for (int i = 0; i < _path.size(); i++) {
+
+			int next = _path.node(i);
+			distance += _path.cost(i);
+
+			result.set(next, distance, current);
+
+			current = next;
+		}
+	}
+
+	// Number of finished nodes (of both searches) since the last reset
+	public int finishedCount() {
+		return _finishedCount;
+	}
+
+	public HierarchyDijkstra() {
+		this(IntQueue.Type.BINARY);
+	}
+
+	// Engine with the type of the priority queue
+	public HierarchyDijkstra(IntQueue.Type queueType) {
+		_queueType = queueType;
+	}
+
+	// Copy of a prepared engine (shares the prepared data, for calculation on another thread)
+	public HierarchyDijkstra(HierarchyDijkstra prepared) {
+
+		_queueType = prepared._queueType;
+		_hierarchy = prepared._hierarchy;
+
+		allocate();
+	}
+
+	// Prepare data for calculation
+	public void prepare(ContractionHierarchy hierarchy) {
+
+		_hierarchy = hierarchy;
+
+		allocate();
+	}
+
+	// Allocate data of a calculation
+	private void allocate() {
+
+		int nodeCount = _hierarchy.nodeCount();
+
+		_queues = new IntQueue[] { IntQueue.create(_queueType, nodeCount), IntQueue.create(_queueType, nodeCount) };
+
+		_data = new int[][] { new int[nodeCount * 3], new int[nodeCount * 3] };
+		_touched = new int[][] { new int[nodeCount], new int[nodeCount] };
+		_touchedCounts = new int[2];
+
+		for (int direction = forward; direction <= backward; direction++)
+			for (int i = 0; i < nodeCount; i++)
+				clear(direction, i);
+	}
+
+	// Reset distances and path for new calculation
+	//   Note: Only the nodes reached by the last calculation are reset
+	public void reset() {
+
+		for (int direction = forward; direction <= backward; direction++) {
+
+			_queues[direction].clear();
+
+			for (int i = 0; i < _touchedCounts[direction]; i++)
+				clear(direction, _touched[direction][i]);
+
+			_touchedCounts[direction] = 0;
+		}
+
+		_finishedCount = 0;
+	}
+
+	// Check if the search of the direction could still find a shorter path
+	private boolean isActive(int direction) {
+
+		return !_queues[direction].isEmpty() && _queues[direction].peekKey() < _distance;
+	}
+
+	// Finish next node of the queue of the direction
+	private void finishNext(int direction) {
+
+		// Remove next node from queue
+		int currentId = _queues[direction].poll();
+		int currentDistance = distance(direction, currentId);
+
+		// Skip node if already finished
+		if (currentDistance < 0)
+			return;
+
+		// Mark node finished
+		setDistance(direction, currentId, -currentDistance);
+		_finishedCount++;
+
+		// Check if the searches meet
+		int other = distance(1 - direction, currentId);
+
+		if (other != Integer.MAX_VALUE && currentDistance + Math.abs(other) < _distance) {
+
+			_distance = currentDistance + Math.abs(other);
+			_meeting = currentId;
+		}
+
+		if (isStalled(direction, currentId, currentDistance))
+			return;
+
+		boolean isForward = direction == forward;
+		int end = isForward ? _hierarchy.upBegin(currentId + 1) : _hierarchy.downBegin(currentId + 1);
+
+		for (int edge = isForward ? _hierarchy.upBegin(currentId) : _hierarchy.downBegin(currentId); edge < end; edge++) {
+
+			// Check if there is an unknown (shorter) path
+			int neighbor = isForward ? _hierarchy.upTarget(edge) : _hierarchy.downSource(edge);
+			int newDistance = currentDistance + (isForward ? _hierarchy.upCost(edge) : _hierarchy.downCost(edge));
+
+			if (newDistance < distance(direction, neighbor)) {
+
+				setPrevious(direction, neighbor, newDistance, currentId, edge);
+
+				// Add node with new distance to queue
+				_queues[direction].insert(neighbor, newDistance);
+			}
+		}
+	}
+
+	// Check if the node is reached shorter over a higher node (edges in the opposite direction)
+	private boolean isStalled(int direction, int node, int distance) {
+
+		boolean isForward = direction == forward;
+		int end = isForward ? _hierarchy.downBegin(node + 1) : _hierarchy.upBegin(node + 1);
+
+		for (int edge = isForward ? _hierarchy.downBegin(node) : _hierarchy.upBegin(node); edge < end; edge++) {
+
+			int neighbor = isForward ? _hierarchy.downSource(edge) : _hierarchy.upTarget(edge);
+			int d = distance(direction, neighbor);
+
+			if (d != Integer.MAX_VALUE && Math.abs(d) + (isForward ? _hierarchy.downCost(edge) : _hierarchy.upCost(edge)) < distance)
+				return true;
+		}
+		return false;
+	}
+
+	private int distance(int direction, int node) {
+		return _data[direction][node * 3];
+	}
+
+	private void setDistance(int direction, int node, int distance) {
+		_data[direction][node * 3] = distance;
+	}
+
+	private int previous(int direction, int node) {
+		return _data[direction][node * 3 + 1];
+	}
+
+	// Edge from the previous node (upward edge for forward, downward edge for backward search)
+	private int edge(int direction, int node) {
+		return _data[direction][node * 3 + 2];
+	}
+
+	// Set distance, previous node and edge (and remember the node if it is reached the first time)
+	private void setPrevious(int direction, int node, int distance, int previous, int edge) {
+
+		if (_data[direction][node * 3] == Integer.MAX_VALUE)
+			_touched[direction][_touchedCounts[direction]++] = node;
+
+		_data[direction][node * 3] = distance;
+		_data[direction][node * 3 + 1] = previous;
+		_data[direction][node * 3 + 2] = edge;
+	}
+
+	// Set node not reached
+	private void clear(int direction, int node) {
+		_data[direction][node * 3] = Integer.MAX_VALUE;
+		_data[direction][node * 3 + 1] = -1;
+		_data[direction][node * 3 + 2] = -1;
+	}
+
+
+	// Index of the forward and backward search
+	private static final int forward = 0;
+	private static final int backward = 1;
+
+	// Contraction hierarchy
+	private ContractionHierarchy _hierarchy;
+
+	// Distance, previous node and edge from the previous node of each node (of each search)
+	//   Note: Finished nodes have a negative distance (like in 'Dijkstra')
+	private int[][] _data;
+
+	// Nodes reached since the last reset (of each search)
+	private int[][] _touched;
+	private int[] _touchedCounts;
+
+	// Type of the priority queue
+	private IntQueue.Type _queueType;
+
+	// Priority queues for non-finished nodes (of each search)
+	private IntQueue[] _queues;
+
+	// Start and target of the last calculation
+	private int _start;
+	private int _target;
+
+	// Length of the shortest path found so far and its meeting node (-1 if none)
+	private int _distance;
+	private int _meeting;
+
+	// Unpacked path
+	private ContractionHierarchy.Path _path = new ContractionHierarchy.Path();
+
+	// Nodes of the forward search on the path
+	private int[] _forwardNodes = new int[64];
+
+	// Number of finished nodes
+	private int _finishedCount;
+}
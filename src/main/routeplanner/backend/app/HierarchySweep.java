@@ -0,0 +1,270 @@
+package routeplanner.backend.app;
+
+import java.util.Arrays;
+
+import routeplanner.backend.model.*;
+
+/*
+ * One-to-all and all-to-one calculation on a contraction hierarchy (PHAST)
+ *   An upward search from the source finds the distances of all nodes above it.
+ *   Then all nodes are swept top-down in order of their rank: the distance of a
+ *   node is the minimum over its downward edges from the (already final) higher
+ *   nodes. The sweep only reads edges in order of the nodes, so all data is stored
+ *   in rank order (position 0 is the highest node) and accessed sequentially.
+ *   For all-to-one the roles of the upward and downward edges are exchanged.
+ *
+ *   The prepared data is not changed by a calculation, so copies of a prepared
+ *   sweep could calculate different sources in parallel (one per request context).
+ */
+public class HierarchySweep {
+
+	// Calculate distances from the source (or to the target, if 'reverse') to all nodes
+	public void calculate(int source, boolean reverse) {
+
+		_reverse = reverse;
+
+		Arrays.fill(_distances, Integer.MAX_VALUE);
+		Arrays.fill(_parents, -1);
+
+		int direction = reverse ? down : up;
+
+		// Upward search from the source (on the downward edges for all-to-one)
+		//   Note: Finished nodes have a negative distance (like in 'Dijkstra')
+		_queue.clear();
+
+		int start = _positions[source];
+
+		_distances[start] = 0;
+		_queue.insert(start, 0);
+
+		int[] offsets = _offsets[direction], neighbors = _neighbors[direction], costs = _costs[direction], middles = _middles[direction];
+
+		while (!_queue.isEmpty()) {
+
+			int current = _queue.poll();
+			int currentDistance = _distances[current];
+
+			// Skip node if already finished
+			if (currentDistance < 0)
+				continue;
+
+			_distances[current] = -currentDistance;
+
+			for (int edge = offsets[current]; edge < offsets[current + 1]; edge++) {
+
+				int neighbor = neighbors[edge];
+				int newDistance = currentDistance + costs[edge];
+
+				if (newDistance < _distances[neighbor]) {
+
+					_distances[neighbor] = newDistance;
+					_parents[neighbor] = current;
+					_parentMiddles[neighbor] = middles[edge];
+
+					_queue.insert(neighbor, newDistance);
+				}
+			}
+		}
+
+		// Top-down sweep over the edges from higher nodes (upward edges for all-to-one)
+		offsets = _offsets[1 - direction];
+		neighbors = _neighbors[1 - direction];
+		costs = _costs[1 - direction];
+		middles = _middles[1 - direction];
+
+		for (int position = 0; position < _distances.length; position++) {
+
+			int distance = _distances[position];
+
+			// Found by the upward search
+			if (distance < 0)
+				distance = -distance;
+
+			for (int edge = offsets[position]; edge < offsets[position + 1]; edge++) {
+
+				// Note: Higher nodes are final, unreachable ones have distance Integer.MAX_VALUE
+				int higher = _distances[neighbors[edge]];
+
+				if (higher != Integer.MAX_VALUE && higher + costs[edge] < distance) {
+
+					distance = higher + costs[edge];
+					_parents[position] = neighbors[edge];
+					_parentMiddles[position] = middles[edge];
+				}
+			}
+
+			_distances[position] = distance;
+		}
+	}
+
+	// Distance of the node calculated by the last sweep (-1 if unreachable)
+	public int distance(int node) {
+
+		int distance = _distances[_positions[node]];
+
+		return distance == Integer.MAX_VALUE ? -1 : distance;
+	}
+
+	// Previous node of the node calculated by the last sweep (next node on the path to the target for all-to-one, -1 if none)
+	public int previous(int node) {
+
+		int position = _positions[node];
+		int parent = _parents[position];
+
+		if (parent == -1)
+			return -1;
+
+		// Node next to this node on the unpacked edge to the parent
+		int middle = _parentMiddles[position];
+
+		if (middle < 0)
+			return _nodes[parent];
+
+		return _reverse ? _hierarchy.secondNode(node, middle) : _hierarchy.penultimateNode(node, middle);
+	}
+
+	// View of the distances and previous nodes of the last sweep
+	public PathResult result() {
+		return _result;
+	}
+
+	// Prepare data for calculation (edges in rank order)
+	public void prepare(ContractionHierarchy hierarchy) {
+
+		_hierarchy = hierarchy;
+
+		int nodeCount = hierarchy.nodeCount();
+
+		_nodes = new int[nodeCount];
+		_positions = new int[nodeCount];
+
+		for (int i = 0; i < nodeCount; i++) {
+
+			_positions[i] = nodeCount - 1 - hierarchy.rank(i);
+			_nodes[_positions[i]] = i;
+		}
+
+		_offsets = new int[2][nodeCount + 1];
+		_neighbors = new int[2][];
+		_costs = new int[2][];
+		_middles = new int[2][];
+
+		for (int direction = up; direction <= down; direction++) {
+
+			int edgeCount = direction == up ? hierarchy.upBegin(nodeCount) : hierarchy.downBegin(nodeCount);
+
+			_neighbors[direction] = new int[edgeCount];
+			_costs[direction] = new int[edgeCount];
+			_middles[direction] = new int[edgeCount];
+
+			int edge = 0;
+			for (int position = 0; position < nodeCount; position++) {
+
+				int node = _nodes[position];
+
+				_offsets[direction][position] = edge;
+
+				int begin = direction == up ? hierarchy.upBegin(node) : hierarchy.downBegin(node);
+				int end = direction == up ? hierarchy.upBegin(node + 1) : hierarchy.downBegin(node + 1);
+
+				for (int i = begin; i < end; i++, edge++) {
+
+					_neighbors[direction][edge] = _positions[direction == up ? hierarchy.upTarget(i) : hierarchy.downSource(i)];
+					_costs[direction][edge] = direction == up ? hierarchy.upCost(i) : hierarchy.downCost(i);
+					_middles[direction][edge] = direction == up ? hierarchy.upMiddle(i) : hierarchy.downMiddle(i);
+				}
+			}
+			_offsets[direction][nodeCount] = edge;
+		}
+
+		allocate();
+	}
+
+	public HierarchySweep() {
+		this(IntQueue.Type.BINARY);
+	}
+
+	// Sweep with the type of the priority queue (of the upward search)
+	public HierarchySweep(IntQueue.Type queueType) {
+		_queueType = queueType;
+	}
+
+	// Copy of a prepared sweep (shares the prepared data, for calculation on another thread)
+	public HierarchySweep(HierarchySweep prepared) {
+
+		_queueType = prepared._queueType;
+		_hierarchy = prepared._hierarchy;
+		_nodes = prepared._nodes;
+		_positions = prepared._positions;
+		_offsets = prepared._offsets;
+		_neighbors = prepared._neighbors;
+		_costs = prepared._costs;
+		_middles = prepared._middles;
+
+		allocate();
+	}
+
+	// Allocate data of a calculation
+	private void allocate() {
+
+		_distances = new int[_nodes.length];
+		_parents = new int[_nodes.length];
+		_parentMiddles = new int[_nodes.length];
+
+		_queue = IntQueue.create(_queueType, _nodes.length);
+	}
+
+
+	// Index of the upward and downward edges
+	private static final int up = 0;
+	private static final int down = 1;
+
+	// Contraction hierarchy (to unpack shortcuts)
+	private ContractionHierarchy _hierarchy;
+
+	// Node at each position and position of each node (ordered by descending rank)
+	private int[] _nodes;
+	private int[] _positions;
+
+	// Upward edges (to higher positions) and downward edges (from higher positions) of each position
+	private int[][] _offsets;
+	private int[][] _neighbors;
+	private int[][] _costs;
+	private int[][] _middles;
+
+	// Distance of each position
+	private int[] _distances;
+
+	// Position of the parent in the hierarchy and middle node of the edge to the parent (-1 if original edge)
+	private int[] _parents;
+	private int[] _parentMiddles;
+
+	// Type of the priority queue
+	private IntQueue.Type _queueType;
+
+	// Priority queue of the upward search
+	private IntQueue _queue;
+
+	// Direction of the last calculation
+	private boolean _reverse;
+
+	// View of the result
+	private PathResult _result = new Result();
+
+
+	/*
+	 * Result view on the data of the sweep
+	 */
+	private class Result implements PathResult {
+
+		@Override
+		public int distance(int node) {
+			return HierarchySweep.this.distance(node);
+		}
+
+		@Override
+		public int previous(int node) {
+			return HierarchySweep.this.previous(node);
+		}
+	}
+}
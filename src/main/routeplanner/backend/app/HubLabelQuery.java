@@ -0,0 +1,171 @@
+package routeplanner.backend.app;
+
+import java.util.Arrays;
+
+import routeplanner.backend.model.*;
+
+/*
+ * Point-to-point query with hub labels
+ *   The distance is the result of a merge of the forward label of the start and the
+ *   backward label of the target. The path is only reconstructed on request: starting
+ *   at the start (target), the next edge of the hierarchy is the one to a neighbor whose
+ *   label contains the common hub with the remaining distance. The edges are unpacked
+ *   like the edges of the query on the hierarchy.
+ */
+public class HubLabelQuery {
+
+	// Calculate distance from start to target, return the distance (-1 if unreachable)
+	public int calculate(int start, int target) {
+
+		_start = start;
+		_target = target;
+
+		long result = _labels.query(start, target);
+
+		_hub = result < 0 ? -1 : (int)(result >>> 32);
+		_distance = result < 0 ? -1 : (int)result;
+
+		return _distance;
+	}
+
+	// Get the calculated distance of the target (and the path if 'withPath') into the cleared buffer
+	public void getResult(PathBuffer result, boolean withPath) {
+
+		if (_distance < 0)
+			return;
+
+		result.set(_target, _distance, -1);
+
+		if (!withPath)
+			return;
+
+		_path.clear();
+
+		// Edges from the start up to the hub
+		//   Note: The walk ends at the hub (not at the remaining distance 0, edges could have no cost)
+		int hubNode = _nodes[_hub];
+		int remaining = _labels.hubDistance(HubLabels.forward, _start, _hub);
+
+		for (int node = _start; node != hubNode; ) {
+
+			int edge = _hierarchy.upBegin(node);
+
+			for ( ; edge < _hierarchy.upBegin(node + 1); edge++) {
+
+				int distance = _labels.hubDistance(HubLabels.forward, _hierarchy.upTarget(edge), _hub);
+
+				if (distance >= 0 && distance + _hierarchy.upCost(edge) == remaining)
+					break;
+			}
+
+			if (edge == _hierarchy.upBegin(node + 1))
+				throw new IllegalStateException("Missing edge to hub");
+
+			_hierarchy.unpack(node, _hierarchy.upTarget(edge), _hierarchy.upCost(edge), _hierarchy.upMiddle(edge), _path);
+
+			remaining -= _hierarchy.upCost(edge);
+			node = _hierarchy.upTarget(edge);
+		}
+
+		// Edges from the target up to the hub (collected backwards)
+		int count = 0;
+		remaining = _labels.hubDistance(HubLabels.backward, _target, _hub);
+
+		for (int node = _target; node != hubNode; ) {
+
+			int edge = _hierarchy.downBegin(node);
+
+			for ( ; edge < _hierarchy.downBegin(node + 1); edge++) {
+
+				int distance = _labels.hubDistance(HubLabels.backward, _hierarchy.downSource(edge), _hub);
+
+				if (distance >= 0 && distance + _hierarchy.downCost(edge) == remaining)
+					break;
+			}
+
+			if (edge == _hierarchy.downBegin(node + 1))
+				throw new IllegalStateException("Missing edge to hub");
+
+			if (count == _backwardEdges.length)
+				_backwardEdges = Arrays.copyOf(_backwardEdges, count * 2);
+
+			_backwardEdges[count++] = edge;
+
+			remaining -= _hierarchy.downCost(edge);
+			node = _hierarchy.downSource(edge);
+		}
+
+		// Edges from the hub down to the target
+		for (int i = count - 1; i >= 0; i--) {
+
+			int edge = _backwardEdges[i];
+			int node = i == 0 ? _target : _hierarchy.downSource(_backwardEdges[i - 1]);
+
+			_hierarchy.unpack(_hierarchy.downSource(edge), node, _hierarchy.downCost(edge), _hierarchy.downMiddle(edge), _path);
+		}
+
+		// Set distances and previous nodes along the path
+		int current = _start;
+		int distance = 0;
+
+		result.set(current, 0, -1);
+
+		for (int i = 0; i < _path.size(); i++) {
+
+			int next = _path.node(i);
+			distance += _path.cost(i);
+
+			result.set(next, distance, current);
+
+			current = next;
+		}
+	}
+
+	public HubLabelQuery() {
+	}
+
+	// Copy of a prepared query (shares the prepared data, for calculation on another thread)
+	public HubLabelQuery(HubLabelQuery prepared) {
+
+		_labels = prepared._labels;
+		_hierarchy = prepared._hierarchy;
+		_nodes = prepared._nodes;
+	}
+
+	// Prepare data for calculation (paths are reconstructed on the hierarchy)
+	public void prepare(HubLabels labels, ContractionHierarchy hierarchy) {
+
+		_labels = labels;
+		_hierarchy = hierarchy;
+
+		// Node of each hub (position in descending rank order like in 'HubLabels')
+		int nodeCount = hierarchy.nodeCount();
+		_nodes = new int[nodeCount];
+
+		for (int i = 0; i < nodeCount; i++)
+			_nodes[nodeCount - 1 - hierarchy.rank(i)] = i;
+	}
+
+	// Hub labels
+	private HubLabels _labels;
+
+	// Contraction hierarchy (the order of the labels)
+	private ContractionHierarchy _hierarchy;
+
+	// Node of each hub position
+	private int[] _nodes;
+
+	// Start and target of the last calculation
+	private int _start;
+	private int _target;
+
+	// Result of the last calculation: distance and common hub (position in descending rank order, -1 if unreachable)
+	private int _distance;
+	private int _hub;
+
+	// Unpacked path
+	private ContractionHierarchy.Path _path = new ContractionHierarchy.Path();
+
+	// Downward edges from the hub to the target (in reverse order)
+	private int[] _backwardEdges = new int[64];
+}
@@ -0,0 +1,613 @@
+package routeplanner.backend.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import routeplanner.backend.model.GraphStore;
+
+/*
+ * Hub labels for distance queries (derived from a contraction hierarchy)
+ *   The forward label of a node contains the nodes reached by the upward search from it
+ *   (hubs) with their distances, the backward label the hubs of the upward search on the
+ *   reverse edges. The shortest path from s to t passes the highest node on it, which
+ *   is a hub of both labels, so d(s, t) = min { d(s, h) + d(h, t) | h in both labels }.
+ *   Labels are created top-down from the labels of the higher neighbors. Entries with a
+ *   shorter path over other hubs of the label are removed (pruning).
+ *
+ *   Hubs are identified by their position in descending rank order (0 is the highest node).
+ *   The entries of a label are sorted by hub, so a query is a merge of two labels. The hubs
+ *   are stored as sequence of variable-length integers [hub - previous hub], the distances
+ *   separately (only read for common hubs).
+ *
+ * File format (little endian):
+ *   [magic] [version] [total number of nodes] [fingerprint of the graph (long)] [fingerprint of the ranks (long)]
+ *   [number of entries] [size of the hubs in bytes]                  FOR EACH DIRECTION (forward, backward)
+ *   [offset]... [hub offset]...      FOR EACH DIRECTION: FOR EACH NODE + 1 (first entry and first byte of the hubs)
+ *   [distance]...                    FOR EACH DIRECTION: FOR EACH ENTRY
+ *   [hubs]                           FOR EACH DIRECTION (bytes)
+ */
+public class HubLabels {
+
+	// Exception class
+
+	static class BadLabelFileException extends Exception {
+
+		private static final long serialVersionUID = 2170938466218740515L;
+
+		public BadLabelFileException(String reason) { super(reason); }
+	}
+
+
+	// Identification of the file format
+	static final int magic = 0x4c485052;
+	static final int version = 1;
+
+	// Size of the header in bytes
+	private static final int headerSize = 7 * Integer.BYTES + 2 * Long.BYTES;
+
+	// Size of the write buffer in bytes
+	private static final int bufferSize = 1 << 20;
+
+	// Index of the forward and backward labels
+	static final int forward = 0;
+	static final int backward = 1;
+
+
+	// Create labels in the order of the hierarchy
+	public static HubLabels create(ContractionHierarchy hierarchy) {
+
+		int nodeCount = hierarchy.nodeCount();
+
+		int[] positions = new int[nodeCount], nodes = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+
+			positions[i] = nodeCount - 1 - hierarchy.rank(i);
+			nodes[positions[i]] = i;
+		}
+
+		// Level of each node: highest nodes (without higher neighbors) first
+		//   Note: Nodes of the same level are not adjacent, so their labels are created in parallel
+		int[] levels = new int[nodeCount];
+		int levelCount = 0;
+
+		for (int position = 0; position < nodeCount; position++) {
+
+			int node = nodes[position], level = 0;
+
+			for (int i = hierarchy.upBegin(node); i < hierarchy.upBegin(node + 1); i++)
+				level = Math.max(level, levels[hierarchy.upTarget(i)] + 1);
+
+			for (int i = hierarchy.downBegin(node); i < hierarchy.downBegin(node + 1); i++)
+				level = Math.max(level, levels[hierarchy.downSource(i)] + 1);
+
+			levels[node] = level;
+			levelCount = Math.max(levelCount, level + 1);
+		}
+
+		int[] levelOffsets = new int[levelCount + 1];
+		for (int node = 0; node < nodeCount; node++)
+			levelOffsets[levels[node] + 1]++;
+		for (int level = 0; level < levelCount; level++)
+			levelOffsets[level + 1] += levelOffsets[level];
+
+		int[] levelNodes = new int[nodeCount];
+		int[] next = Arrays.copyOf(levelOffsets, levelCount);
+		for (int node = 0; node < nodeCount; node++)
+			levelNodes[next[levels[node]]++] = node;
+
+		// Hubs and distances of each label
+		int[][][] hubs = new int[2][nodeCount][];
+		int[][][] distances = new int[2][nodeCount][];
+
+		for (int level = 0; level < levelCount; level++) {
+
+			IntStream.range(levelOffsets[level], levelOffsets[level + 1]).parallel().forEach((i) -> {
+
+				int node = levelNodes[i];
+
+				for (int direction = forward; direction <= backward; direction++)
+					createLabel(hierarchy, positions, nodes, node, direction, hubs, distances);
+			});
+		}
+
+		// Encode labels
+		IntBuffer[] offsets = new IntBuffer[2], hubOffsets = new IntBuffer[2], labelDistances = new IntBuffer[2];
+		ByteBuffer[] labelHubs = new ByteBuffer[2];
+
+		for (int direction = forward; direction <= backward; direction++) {
+
+			offsets[direction] = IntBuffer.allocate(nodeCount + 1);
+			hubOffsets[direction] = IntBuffer.allocate(nodeCount + 1);
+
+			long count = 0, size = 0;
+			for (int node = 0; node < nodeCount; node++) {
+
+				offsets[direction].put(node, (int)count);
+				hubOffsets[direction].put(node, (int)size);
+
+				int previous = 0;
+				for (int hub : hubs[direction][node]) {
+
+					size += varintSize(hub - previous);
+					previous = hub;
+				}
+				count += hubs[direction][node].length;
+
+				if (count > Integer.MAX_VALUE || size > Integer.MAX_VALUE)
+					throw new IllegalArgumentException("Labels too large to store");
+			}
+			offsets[direction].put(nodeCount, (int)count);
+			hubOffsets[direction].put(nodeCount, (int)size);
+
+			labelDistances[direction] = IntBuffer.allocate((int)count);
+			labelHubs[direction] = ByteBuffer.allocate((int)size);
+
+			for (int node = 0; node < nodeCount; node++) {
+
+				int previous = 0;
+				for (int hub : hubs[direction][node]) {
+
+					writeVarint(labelHubs[direction], hub - previous);
+					previous = hub;
+				}
+				labelDistances[direction].put(distances[direction][node]);
+
+				// Release decoded label
+				hubs[direction][node] = null;
+				distances[direction][node] = null;
+			}
+			labelHubs[direction].clear();
+			labelDistances[direction].clear();
+		}
+
+		return new HubLabels(offsets, hubOffsets, labelDistances, labelHubs);
+	}
+
+	// Read labels from file (mapped into memory, not copied)
+	//   Note: The labels have to be created with the same hierarchy (order) to reconstruct paths
+	public static HubLabels read(Path file, GraphStore graph, ContractionHierarchy hierarchy) throws BadLabelFileException, IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			if (channel.size() < headerSize)
+				throw new BadLabelFileException("File too short for header");
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerSize).order(ByteOrder.LITTLE_ENDIAN);
+
+			if (header.getInt() != magic)
+				throw new BadLabelFileException("Not a label file");
+
+			int fileVersion = header.getInt();
+			if (fileVersion != version)
+				throw new BadLabelFileException("Unsupported label file version " + fileVersion);
+
+			int nodeCount = header.getInt();
+			long fingerprint = header.getLong();
+			long order = header.getLong();
+			int[] counts = new int[2], sizes = new int[2];
+
+			for (int direction = forward; direction <= backward; direction++) {
+
+				counts[direction] = header.getInt();
+				sizes[direction] = header.getInt();
+
+				if (counts[direction] < 0 || sizes[direction] < 0)
+					throw new BadLabelFileException("Bad label size");
+			}
+
+			if (nodeCount != graph.nodeCount() || fingerprint != graph.fingerprint())
+				throw new BadLabelFileException("Labels created for a different graph");
+
+			if (order != rankFingerprint(hierarchy))
+				throw new BadLabelFileException("Labels created for a different hierarchy");
+
+			long size = headerSize + 4 * ((long)nodeCount + 1) * Integer.BYTES
+				+ ((long)counts[forward] + counts[backward]) * Integer.BYTES + (long)sizes[forward] + sizes[backward];
+
+			if (channel.size() != size)
+				throw new BadLabelFileException("File size does not match header");
+
+			long position = headerSize;
+
+			IntBuffer[] offsets = new IntBuffer[2], hubOffsets = new IntBuffer[2], distances = new IntBuffer[2];
+			ByteBuffer[] hubs = new ByteBuffer[2];
+
+			for (int direction = forward; direction <= backward; direction++) {
+
+				offsets[direction] = map(channel, position, ((long)nodeCount + 1) * Integer.BYTES).asIntBuffer();
+				position += ((long)nodeCount + 1) * Integer.BYTES;
+
+				hubOffsets[direction] = map(channel, position, ((long)nodeCount + 1) * Integer.BYTES).asIntBuffer();
+				position += ((long)nodeCount + 1) * Integer.BYTES;
+			}
+
+			for (int direction = forward; direction <= backward; direction++) {
+
+				distances[direction] = map(channel, position, (long)counts[direction] * Integer.BYTES).asIntBuffer();
+				position += (long)counts[direction] * Integer.BYTES;
+			}
+
+			for (int direction = forward; direction <= backward; direction++) {
+
+				hubs[direction] = map(channel, position, sizes[direction]);
+				position += sizes[direction];
+			}
+
+			// Check offsets (the hubs of each label have at least one byte per entry)
+			for (int direction = forward; direction <= backward; direction++) {
+
+				if (offsets[direction].get(0) != 0 || offsets[direction].get(nodeCount) != counts[direction]
+						|| hubOffsets[direction].get(0) != 0 || hubOffsets[direction].get(nodeCount) != sizes[direction])
+					throw new BadLabelFileException("Bad label offsets");
+
+				for (int i = 0; i < nodeCount; i++) {
+
+					int count = offsets[direction].get(i + 1) - offsets[direction].get(i);
+					int bytes = hubOffsets[direction].get(i + 1) - hubOffsets[direction].get(i);
+
+					if (count < 0 || bytes < count)
+						throw new BadLabelFileException("Bad label offset of node " + i);
+				}
+			}
+
+			return new HubLabels(offsets, hubOffsets, distances, hubs);
+		}
+	}
+
+	// Write labels to file
+	public void write(Path file, GraphStore graph, ContractionHierarchy hierarchy) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(magic);
+			buffer.putInt(version);
+			buffer.putInt(nodeCount());
+			buffer.putLong(graph.fingerprint());
+			buffer.putLong(rankFingerprint(hierarchy));
+
+			for (int direction = forward; direction <= backward; direction++) {
+
+				buffer.putInt(_distances[direction].limit());
+				buffer.putInt(_hubs[direction].limit());
+			}
+
+			for (int direction = forward; direction <= backward; direction++) {
+
+				writeInts(channel, buffer, _offsets[direction]);
+				writeInts(channel, buffer, _hubOffsets[direction]);
+			}
+
+			for (int direction = forward; direction <= backward; direction++)
+				writeInts(channel, buffer, _distances[direction]);
+
+			flush(channel, buffer);
+
+			for (int direction = forward; direction <= backward; direction++) {
+
+				ByteBuffer hubs = _hubs[direction].duplicate().clear();
+
+				while (hubs.hasRemaining())
+					channel.write(hubs);
+			}
+		}
+	}
+
+	public int nodeCount() {
+		return _offsets[forward].limit() - 1;
+	}
+
+	// Size of all labels in bytes (hubs and distances)
+	public long size() {
+		return (long)_hubs[forward].limit() + _hubs[backward].limit() + entryCount() * Integer.BYTES;
+	}
+
+	// Number of entries of all labels
+	public long entryCount() {
+		return (long)_distances[forward].limit() + _distances[backward].limit();
+	}
+
+	// Distance from source to target (-1 if unreachable)
+	public int distance(int source, int target) {
+
+		long result = query(source, target);
+
+		return result < 0 ? -1 : (int)result;
+	}
+
+	// Shortest distance over a common hub of the forward label of 'source' and the backward label of 'target'
+	//   Returns the distance in the lower and the hub in the upper 32 bits (-1 if there is no common hub)
+	long query(int source, int target) {
+
+		LabelCursor a = new LabelCursor(this, forward, source);
+		LabelCursor b = new LabelCursor(this, backward, target);
+
+		if (!a.next() || !b.next())
+			return -1;
+
+		long best = Long.MAX_VALUE;
+
+		while (true) {
+
+			int hubA = a.hub(), hubB = b.hub();
+
+			if (hubA == hubB) {
+
+				long distance = (long)a.distance() + b.distance();
+
+				if (distance < (best & 0xffffffffL))
+					best = (long)hubA << 32 | distance;
+			}
+
+			// Advance the label with the smaller hub (the forward label if equal)
+			if (hubA <= hubB ? !a.next() : !b.next())
+				break;
+		}
+
+		return best == Long.MAX_VALUE ? -1 : best;
+	}
+
+	// Distance to the hub in the label of the node (-1 if not in the label)
+	int hubDistance(int direction, int node, int hub) {
+
+		for (LabelCursor cursor = new LabelCursor(this, direction, node); cursor.next(); ) {
+
+			if (cursor.hub() == hub)
+				return cursor.distance();
+
+			if (cursor.hub() > hub)
+				break;
+		}
+		return -1;
+	}
+
+	private HubLabels(IntBuffer[] offsets, IntBuffer[] hubOffsets, IntBuffer[] distances, ByteBuffer[] hubs) {
+
+		_offsets = offsets;
+		_hubOffsets = hubOffsets;
+		_distances = distances;
+		_hubs = hubs;
+	}
+
+	// Create label of the node from the labels of its higher neighbors (already created)
+	private static void createLabel(ContractionHierarchy hierarchy, int[] positions, int[] nodes, int node, int direction,
+			int[][][] hubs, int[][][] distances) {
+
+		boolean isForward = direction == forward;
+
+		int begin = isForward ? hierarchy.upBegin(node) : hierarchy.downBegin(node);
+		int end = isForward ? hierarchy.upBegin(node + 1) : hierarchy.downBegin(node + 1);
+
+		// Collect entries as [hub] [distance] in one long (sorted by hub, then by distance)
+		int size = 1;
+		for (int i = begin; i < end; i++)
+			size += hubs[direction][isForward ? hierarchy.upTarget(i) : hierarchy.downSource(i)].length;
+
+		long[] entries = new long[size];
+		entries[0] = (long)positions[node] << 32;
+
+		int count = 1;
+		for (int i = begin; i < end; i++) {
+
+			int neighbor = isForward ? hierarchy.upTarget(i) : hierarchy.downSource(i);
+			int cost = isForward ? hierarchy.upCost(i) : hierarchy.downCost(i);
+
+			for (int j = 0; j < hubs[direction][neighbor].length; j++)
+				entries[count++] = (long)hubs[direction][neighbor][j] << 32 | (distances[direction][neighbor][j] + cost);
+		}
+
+		Arrays.sort(entries);
+
+		// Keep shortest distance of each hub
+		int[] labelHubs = new int[count], labelDistances = new int[count];
+		int labelSize = 0;
+
+		for (int i = 0; i < count; i++) {
+
+			int hub = (int)(entries[i] >>> 32);
+
+			if (labelSize > 0 && labelHubs[labelSize - 1] == hub)
+				continue;
+
+			labelHubs[labelSize] = hub;
+			labelDistances[labelSize] = (int)entries[i];
+			labelSize++;
+		}
+
+		// Remove entries with a shorter path over another hub of the label
+		//   Note: The labels of the hubs (higher nodes) are already final
+		int kept = 0;
+		for (int i = 0; i < labelSize; i++) {
+
+			int hub = labelHubs[i];
+
+			if (hub != positions[node]) {
+
+				int other = 1 - direction;
+
+				if (mergeDistance(labelHubs, labelDistances, labelSize, hubs[other][nodes[hub]], distances[other][nodes[hub]]) < labelDistances[i])
+					continue;
+			}
+
+			labelHubs[kept] = hub;
+			labelDistances[kept] = labelDistances[i];
+			kept++;
+		}
+
+		hubs[direction][node] = Arrays.copyOf(labelHubs, kept);
+		distances[direction][node] = Arrays.copyOf(labelDistances, kept);
+	}
+
+	// Hash of the ranks of the hierarchy (FNV-1a like 'GraphStore.fingerprint()')
+	private static long rankFingerprint(ContractionHierarchy hierarchy) {
+
+		long hash = 0xcbf29ce484222325L;
+
+		for (int i = 0; i < hierarchy.nodeCount(); i++)
+			hash = (hash ^ hierarchy.rank(i)) * 0x100000001b3L;
+
+		return hash;
+	}
+
+	// Shortest distance over a common hub of two decoded labels (Long.MAX_VALUE if none)
+	private static long mergeDistance(int[] hubsA, int[] distancesA, int sizeA, int[] hubsB, int[] distancesB) {
+
+		long best = Long.MAX_VALUE;
+
+		for (int i = 0, j = 0; i < sizeA && j < hubsB.length; ) {
+
+			if (hubsA[i] < hubsB[j]) {
+				i++;
+			} else if (hubsA[i] > hubsB[j]) {
+				j++;
+			} else {
+				best = Math.min(best, (long)distancesA[i++] + distancesB[j++]);
+			}
+		}
+		return best;
+	}
+
+	// Map a section of the file
+	private static ByteBuffer map(FileChannel channel, long position, long size) throws BadLabelFileException, IOException {
+
+		if (size > Integer.MAX_VALUE)
+			throw new BadLabelFileException("Section too large to be mapped");
+
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	// Write integers to the channel (the buffer may contain unwritten bytes)
+	private static void writeInts(FileChannel channel, ByteBuffer buffer, IntBuffer values) throws IOException {
+
+		for (int i = 0; i < values.limit(); i++) {
+
+			if (buffer.remaining() < Integer.BYTES)
+				flush(channel, buffer);
+
+			buffer.putInt(values.get(i));
+		}
+	}
+
+	// Write buffer content to the channel
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+		buffer.flip();
+
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+
+		buffer.clear();
+	}
+
+	// Number of bytes of the variable-length integer
+	private static int varintSize(int value) {
+
+		int size = 1;
+		while ((value & ~0x7f) != 0) {
+
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	// Encode variable-length integer (7 bits per byte, least significant first)
+	private static void writeVarint(ByteBuffer buffer, int value) {
+
+		while ((value & ~0x7f) != 0) {
+
+			buffer.put((byte)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte)value);
+	}
+
+
+	/*
+	 * Iterator over the entries of a label
+	 */
+	static class LabelCursor {
+
+		LabelCursor(HubLabels labels, int direction, int node) {
+
+			_hubs = labels._hubs[direction];
+			_distances = labels._distances[direction];
+			_position = labels._hubOffsets[direction].get(node);
+			_entry = labels._offsets[direction].get(node) - 1;
+			_end = labels._offsets[direction].get(node + 1) - 1;
+		}
+
+		// Move to the next entry, return false if there is none
+		boolean next() {
+
+			if (_entry >= _end)
+				return false;
+
+			_hub += readVarint();
+			_entry++;
+			return true;
+		}
+
+		// Hub of the current entry (position in descending rank order)
+		int hub() {
+			return _hub;
+		}
+
+		// Distance to/from the hub of the current entry
+		int distance() {
+			return _distances.get(_entry);
+		}
+
+		// Decode variable-length integer (7 bits per byte, least significant first)
+		private int readVarint() {
+
+			int b = _hubs.get(_position++);
+			if (b >= 0)
+				return b;
+
+			int value = b & 0x7f;
+			for (int shift = 7; ; shift += 7) {
+
+				b = _hubs.get(_position++);
+				value |= (b & 0x7f) << shift;
+
+				if (b >= 0)
+					return value;
+			}
+		}
+
+		private ByteBuffer _hubs;
+		private IntBuffer _distances;
+
+		// Position of the next hub (in bytes)
+		private int _position;
+
+		// Index of the current and last entry
+		private int _entry;
+		private int _end;
+
+		private int _hub;
+	}
+
+
+	// First entry of each label
+	private IntBuffer[] _offsets;
+
+	// Position of the hubs of each label (in bytes)
+	private IntBuffer[] _hubOffsets;
+
+	// Distances of all entries
+	private IntBuffer[] _distances;
+
+	// Encoded hubs of all entries
+	private ByteBuffer[] _hubs;
+}
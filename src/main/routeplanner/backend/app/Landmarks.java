@@ -0,0 +1,299 @@
+package routeplanner.backend.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import routeplanner.backend.model.GraphStore;
+
+/*
+ * Landmarks for lower bounds of the distance (ALT: A*, landmarks and triangle inequality)
+ *   For each landmark L the distances d(L, v) from and d(v, L) to every node v are stored.
+ *   By the triangle inequality d(v, t) >= d(L, t) - d(L, v) and d(v, t) >= d(v, L) - d(t, L).
+ *   The landmarks are selected one after another as the node farthest from the selected ones.
+ *
+ * File format (little endian):
+ *   [magic] [version] [total number of nodes] [number of landmarks] [fingerprint of the graph (long)]
+ *   [landmark]...            FOR EACH LANDMARK (node index)
+ *   [from] [to]...           FOR EACH NODE: FOR EACH LANDMARK (distance from/to the landmark)
+ */
+public class Landmarks {
+
+	// Exception class
+
+	static class BadLandmarkFileException extends Exception {
+
+		private static final long serialVersionUID = 4815362934710394711L;
+
+		public BadLandmarkFileException(String reason) { super(reason); }
+	}
+
+
+	// Identification of the file format
+	static final int magic = 0x4c4d5052;
+	static final int version = 1;
+
+	// Default and maximum number of landmarks
+	static final int defaultCount = 16;
+	static final int maxCount = 64;
+
+	// Distance of unreachable nodes
+	static final int unreachable = Integer.MAX_VALUE;
+
+	// Size of the header in bytes
+	private static final int headerSize = 4 * Integer.BYTES + Long.BYTES;
+
+	// Size of the read/write buffer in bytes
+	private static final int bufferSize = 1 << 20;
+
+
+	// Select landmarks in the graph (first one farthest from 'start') and calculate the distances
+	public static Landmarks create(GraphStore graph, GraphStore reverse, int count, int start) {
+
+		int nodeCount = graph.nodeCount();
+
+		if ((long)nodeCount * count * 2 > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many landmarks for the graph");
+
+		// Select landmarks
+		int[] landmarks = new int[count];
+		int selected = 0;
+
+		Dijkstra dijkstra = new Dijkstra();
+		dijkstra.prepare(graph);
+
+		while (selected < count) {
+
+			// Distances from the start node (first landmark) or from all selected landmarks
+			dijkstra.reset();
+
+			for (int i = 0; i < selected; i++)
+				dijkstra.start(landmarks[i], 0, -1);
+
+			dijkstra.calculate(selected == 0 ? start : landmarks[0]);
+
+			int farthest = -1, distance = 0;
+			for (int i = 0; i < nodeCount; i++) {
+
+				if (dijkstra.finishedDistance(i) > distance) {
+
+					farthest = i;
+					distance = dijkstra.finishedDistance(i);
+				}
+			}
+
+			// All reachable nodes are landmarks
+			if (farthest < 0)
+				break;
+
+			landmarks[selected++] = farthest;
+		}
+
+		if (selected == 0 && count > 0)
+			landmarks[selected++] = start;
+
+		int[] nodes = Arrays.copyOf(landmarks, selected);
+		int[] distances = new int[nodeCount * selected * 2];
+
+		// Calculate distances from (forward) and to (on the reverse graph) each landmark in parallel
+		IntStream.range(0, selected * 2).parallel().forEach((task) -> {
+
+			int landmark = task / 2, direction = task % 2;
+
+			Dijkstra search = new Dijkstra();
+			search.prepare(direction == 0 ? graph : reverse);
+
+			search.reset();
+			search.calculate(nodes[landmark]);
+
+			for (int i = 0; i < nodeCount; i++) {
+
+				int d = search.finishedDistance(i);
+
+				distances[(i * nodes.length + landmark) * 2 + direction] = d < 0 ? unreachable : d;
+			}
+		});
+
+		return new Landmarks(nodes, distances);
+	}
+
+	// Read landmarks from file
+	public static Landmarks read(Path file, GraphStore graph) throws BadLandmarkFileException, IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			if (channel.size() < headerSize)
+				throw new BadLandmarkFileException("File too short for header");
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.limit(headerSize);
+			fill(channel, buffer);
+
+			if (buffer.getInt() != magic)
+				throw new BadLandmarkFileException("Not a landmark file");
+
+			int fileVersion = buffer.getInt();
+			if (fileVersion != version)
+				throw new BadLandmarkFileException("Unsupported landmark file version " + fileVersion);
+
+			int nodeCount = buffer.getInt();
+			int count = buffer.getInt();
+			long fingerprint = buffer.getLong();
+
+			if (nodeCount != graph.nodeCount() || fingerprint != graph.fingerprint())
+				throw new BadLandmarkFileException("Landmarks calculated for a different graph");
+
+			if (count < 1 || count > maxCount)
+				throw new BadLandmarkFileException("Bad number of landmarks");
+
+			long size = headerSize + (long)count * Integer.BYTES + (long)nodeCount * count * 2 * Integer.BYTES;
+
+			if (channel.size() != size)
+				throw new BadLandmarkFileException("File size does not match header");
+
+			int[] landmarks = new int[count];
+			int[] distances = new int[nodeCount * count * 2];
+
+			readInts(channel, buffer, landmarks);
+			readInts(channel, buffer, distances);
+
+			for (int landmark : landmarks)
+				if (landmark < 0 || landmark >= nodeCount)
+					throw new BadLandmarkFileException("Landmark out of range");
+
+			for (int d : distances)
+				if (d < 0)
+					throw new BadLandmarkFileException("Negative distance");
+
+			return new Landmarks(landmarks, distances);
+		}
+	}
+
+	// Write landmarks to file
+	public void write(Path file, GraphStore graph) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(magic);
+			buffer.putInt(version);
+			buffer.putInt(graph.nodeCount());
+			buffer.putInt(count());
+			buffer.putLong(graph.fingerprint());
+
+			writeInts(channel, buffer, _landmarks);
+			writeInts(channel, buffer, _distances);
+
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		}
+	}
+
+	// Number of landmarks
+	public int count() {
+		return _landmarks.length;
+	}
+
+	// Node of the landmark
+	public int landmark(int index) {
+		return _landmarks[index];
+	}
+
+	// Get distances from/to all landmarks of the node (array of size 'count() * 2')
+	public void distances(int node, int[] distances) {
+		System.arraycopy(_distances, node * _landmarks.length * 2, distances, 0, _landmarks.length * 2);
+	}
+
+	// Lower bound of the distance from the node to the target (distances of the target from 'distances()')
+	public int bound(int node, int[] target) {
+
+		int bound = 0;
+
+		for (int i = 0, j = node * _landmarks.length * 2; i < target.length; i += 2, j += 2) {
+
+			int from = _distances[j], to = _distances[j + 1];
+
+			// d(v, t) >= d(L, t) - d(L, v)
+			if (from != unreachable && target[i] != unreachable)
+				bound = Math.max(bound, target[i] - from);
+
+			// d(v, t) >= d(v, L) - d(t, L)
+			if (to != unreachable && target[i + 1] != unreachable)
+				bound = Math.max(bound, to - target[i + 1]);
+		}
+		return bound;
+	}
+
+	private Landmarks(int[] landmarks, int[] distances) {
+
+		_landmarks = landmarks;
+		_distances = distances;
+	}
+
+	// Fill the remaining bytes of the buffer from the channel and flip it
+	private static void fill(FileChannel channel, ByteBuffer buffer) throws BadLandmarkFileException, IOException {
+
+		while (buffer.hasRemaining())
+			if (channel.read(buffer) < 0)
+				throw new BadLandmarkFileException("Unexpected end of file");
+
+		buffer.flip();
+	}
+
+	// Read integers from the channel (the buffer may contain unread bytes)
+	private static void readInts(FileChannel channel, ByteBuffer buffer, int[] values) throws BadLandmarkFileException, IOException {
+
+		for (int i = 0; i < values.length; ) {
+
+			if (buffer.remaining() < Integer.BYTES) {
+
+				buffer.compact();
+				buffer.limit(Math.min(buffer.capacity(), buffer.position() + (values.length - i) * Integer.BYTES));
+				fill(channel, buffer);
+			}
+
+			int count = Math.min(values.length - i, buffer.remaining() / Integer.BYTES);
+
+			buffer.asIntBuffer().get(values, i, count);
+			buffer.position(buffer.position() + count * Integer.BYTES);
+			i += count;
+		}
+	}
+
+	// Write integers to the channel (the buffer may contain unwritten bytes)
+	private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+
+		for (int i = 0; i < values.length; ) {
+
+			if (buffer.remaining() < Integer.BYTES) {
+
+				buffer.flip();
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+				buffer.clear();
+			}
+
+			int count = Math.min(values.length - i, buffer.remaining() / Integer.BYTES);
+
+			buffer.asIntBuffer().put(values, i, count);
+			buffer.position(buffer.position() + count * Integer.BYTES);
+			i += count;
+		}
+	}
+
+
+	// Node of each landmark
+	private int[] _landmarks;
+
+	// Distances from and to each landmark for each node ('unreachable' if there is no path)
+	private int[] _distances;
+}
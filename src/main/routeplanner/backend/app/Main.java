@@ -1,11 +1,11 @@
 package routeplanner.backend.app;
 
+import java.util.EnumSet;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
@@ -13,7 +13,6 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.net.URL;
 import java.nio.charset.Charset;
@@ -24,7 +23,10 @@ import java.nio.file.Paths;
 import routeplanner.backend.app.App.FatalFailure;
 import routeplanner.backend.app.App.Code;
 import routeplanner.backend.app.App.Mode;
+import routeplanner.backend.app.App.Order;
+import routeplanner.backend.app.App.Algorithm;
 import routeplanner.backend.app.App.Parameters;
+import routeplanner.backend.model.IntQueue;
 
 /*
  * Program flow and user interaction
@@ -99,6 +101,7 @@ public class Main {
 	// Some compile-time parameters
 	static final int serverPortNumber = 80;
 	static final int serverBacklogSize = 10;
+	static final int serverThreadCount = 4;
 	static final int serverShutdownDelay = 1;
 	static final String serverRootRedirection = "/index.html";
 	static final String serverRouteplannerPath = "/routeplanner";
@@ -106,9 +109,9 @@ public class Main {
 	static final String htmlDirPath = "/html";
 	static final String helpFilePath = "/help.txt";
 
-	// Default stream writers (System.in/System.out)
+	// Default stream reader/writer (System.in/System.out)
 	private static final Charset utf8 = Charset.forName("utf-8");
-	private static final BufferedReader stdinReader = new BufferedReader(new InputStreamReader(System.in, utf8));
+	private static final ByteLineReader stdinReader = new ByteLineReader(System.in);
 	private static final BufferedWriter stdoutWriter = new BufferedWriter(new OutputStreamWriter(System.out, utf8));
 	
 
@@ -135,6 +138,20 @@ public class Main {
 				structureIn = args[i];
 				break;
 				
+			case "--snapshot":
+			case "-s":
+				
+				i++;
+				if (args.length == i)
+					throw new BadParameterException("No snapshot file provided");
+				
+				try {
+					p.snapshotFile = Paths.get(args[i]);
+				} catch (InvalidPathException ex) {
+					throw new BadParameterException("Invalid path provided");
+				}
+				break;
+				
 			case "--output-file":
 			case "-o" :
 				
@@ -216,6 +233,21 @@ public class Main {
 				p.mode = Mode.OTM;
 				break;
 				
+			case "--all-to-one":
+			case "-ato":
+				
+				i++;
+				if (args.length == i)
+					throw new BadParameterException("No target point for all-to-one provided");
+				
+				try {
+					p.start = Integer.parseUnsignedInt(args[i]);
+				} catch (NumberFormatException ex) {
+					throw new BadParameterException("Bad target point for all-to-one provided");
+				}
+				p.mode = Mode.ATO;
+				break;
+				
 			case "--next-node-iterative":
 			case "-nni":
 				
@@ -264,6 +296,23 @@ public class Main {
 				p.htmlDirectory = new URL(dir);
 				break;
 				
+			case "--threads":
+			case "-th":
+				
+				i++;
+				if (args.length == i)
+					throw new BadParameterException("No number of threads provided");
+				
+				try {
+					p.threads = Integer.parseUnsignedInt(args[i]);
+				} catch (NumberFormatException ex) {
+					throw new BadParameterException("Bad number of threads provided");
+				}
+				
+				if (p.threads < 1)
+					throw new BadParameterException("Bad number of threads provided");
+				break;
+				
 			case "--print-location":
 			case "-pl":
 				
@@ -282,6 +331,170 @@ public class Main {
 				p.printPath = true;
 				break;
 				
+			case "--reorder":
+			case "-ro":
+				
+				i++;
+				if (args.length == i)
+					throw new BadParameterException("No node order provided");
+				
+				switch (args[i]) {
+				
+				case "none":
+					p.order = Order.NONE;
+					break;
+					
+				case "hilbert":
+					p.order = Order.HILBERT;
+					break;
+					
+				case "bfs":
+					p.order = Order.BFS;
+					break;
+					
+				default:
+					throw new BadParameterException("Unknown node order provided");
+				}
+				break;
+				
+			case "--algorithm":
+			case "-alg":
+				
+				i++;
+				if (args.length == i)
+					throw new BadParameterException("No algorithm provided");
+				
+				// Note: The server takes a comma-separated list of algorithms to prepare
+				p.algorithms = EnumSet.noneOf(Algorithm.class);
+				
+				for (String name : args[i].split(",")) {
+					
+					Algorithm algorithm = parseAlgorithm(name);
+					
+					if (algorithm == null)
+						throw new BadParameterException("Unknown algorithm provided");
+					
+					if (p.algorithms.isEmpty())
+						p.algorithm = algorithm;
+					
+					p.algorithms.add(algorithm);
+				}
+				break;
+				
+			case "--landmark-file":
+			case "-lf":
+				
+				i++;
+				if (args.length == i)
+					throw new BadParameterException("No landmark file provided");
+				
+				try {
+					p.landmarkFile = Paths.get(args[i]);
+				} catch (InvalidPathException ex) {
+					throw new BadParameterException("Invalid path provided");
+				}
+				break;
+				
+			case "--hierarchy-file":
+			case "-hf":
+				
+				i++;
+				if (args.length == i)
+					throw new BadParameterException("No hierarchy file provided");
+				
+				try {
+					p.hierarchyFile = Paths.get(args[i]);
+				} catch (InvalidPathException ex) {
+					throw new BadParameterException("Invalid path provided");
+				}
+				break;
+				
+			case "--hub-label-file":
+			case "-hlf":
+				
+				i++;
+				if (args.length == i)
+					throw new BadParameterException("No label file provided");
+				
+				try {
+					p.labelFile = Paths.get(args[i]);
+				} catch (InvalidPathException ex) {
+					throw new BadParameterException("Invalid path provided");
+				}
+				break;
+				
+			case "--landmark-count":
+			case "-lc":
+				
+				i++;
+				if (args.length == i)
+					throw new BadParameterException("No number of landmarks provided");
+				
+				try {
+					p.landmarkCount = Integer.parseUnsignedInt(args[i]);
+				} catch (NumberFormatException ex) {
+					throw new BadParameterException("Bad number of landmarks provided");
+				}
+				
+				if (p.landmarkCount < 1 || p.landmarkCount > Landmarks.maxCount)
+					throw new BadParameterException("Bad number of landmarks provided");
+				break;
+				
+			case "--priority-queue":
+			case "-pq":
+				
+				i++;
+				if (args.length == i)
+					throw new BadParameterException("No priority queue provided");
+				
+				// Note: Queue of all algorithms and queues of single algorithms, e.g. 'radix,ch=indexed'
+				for (String entry : args[i].split(",")) {
+					
+					int separator = entry.indexOf('=');
+					IntQueue.Type queue = parseQueue(entry.substring(separator + 1));
+					
+					if (queue == null)
+						throw new BadParameterException("Unknown priority queue provided");
+					
+					if (separator < 0) {
+						
+						p.queue = queue;
+						continue;
+					}
+					
+					Algorithm algorithm = parseAlgorithm(entry.substring(0, separator));
+					
+					if (algorithm == null)
+						throw new BadParameterException("Unknown algorithm provided");
+					
+					p.queues.put(algorithm, queue);
+				}
+				break;
+				
+			case "--fixed-point":
+			case "-fp":
+				
+				p.isFixedPoint = true;
+				break;
+				
+			case "--off-heap":
+			case "-oh":
+				
+				p.isOffHeap = true;
+				break;
+				
+			case "--compress-edges":
+			case "-ce":
+				
+				p.isCompressed = true;
+				break;
+				
+			case "--contract-chains":
+			case "-cc":
+				
+				p.isContracted = true;
+				break;
+				
 			case "--tolerant":
 			case "-t":
 				
@@ -328,15 +541,23 @@ public class Main {
 			throw new BadParameterException("No operation specified. Use -h for help");
 		}
 		
+		if (p.algorithms.size() > 1 && p.mode != Mode.SRV)
+			throw new BadParameterException("Multiple algorithms only provided for the server");
+		
+		if (!isSupported(p.mode, p.algorithm))
+			throw new BadParameterException("Algorithm not provided for the operation");
+		
 
 		// Create I/O reader/writer
 
 		try {
 			
-			if (structureIn == null)
+			if (structureIn == null) {
 				p.structureIn = stdinReader;
-			else
-				p.structureIn = new BufferedReader(new InputStreamReader(new FileInputStream(structureIn), utf8));
+			} else {
+				p.structureIn = new ByteLineReader(new FileInputStream(structureIn));
+				p.structureFile = Paths.get(structureIn);
+			}
 			
 			if (requestIn == null)
 				p.requestIn = stdinReader;
@@ -345,7 +566,7 @@ public class Main {
 					&& Files.isSameFile(Paths.get(requestIn), Paths.get(structureIn)))
 					p.requestIn = p.structureIn;
 				else
-					p.requestIn = new BufferedReader(new InputStreamReader(new FileInputStream(requestIn), utf8));
+					p.requestIn = new ByteLineReader(new FileInputStream(requestIn));
 			
 			if (requestOut == null)
 				p.requestOut = stdoutWriter;
@@ -391,6 +612,63 @@ public class Main {
 		return p;
 	}
 	
+	// Get algorithm for one-to-one calculation by name (null if unknown)
+	static Algorithm parseAlgorithm(String name) {
+		
+		switch (name) {
+		
+		case "dijkstra":
+			return Algorithm.DIJKSTRA;
+			
+		case "bidirectional":
+			return Algorithm.BIDIRECTIONAL;
+			
+		case "astar":
+			return Algorithm.ASTAR;
+			
+		case "alt":
+			return Algorithm.ALT;
+			
+		case "ch":
+			return Algorithm.CH;
+			
+		case "hl":
+			return Algorithm.HL;
+			
+		default:
+			return null;
+		}
+	}
+	
+	// Get priority queue by name (null if unknown)
+	static IntQueue.Type parseQueue(String name) {
+		
+		switch (name) {
+		
+		case "binary":
+			return IntQueue.Type.BINARY;
+			
+		case "indexed":
+			return IntQueue.Type.INDEXED;
+			
+		case "radix":
+			return IntQueue.Type.RADIX;
+			
+		default:
+			return null;
+		}
+	}
+	
+	// Check if the operation could be calculated with the algorithm
+	//   Note: One-to-all, one-to-many and all-to-one are only calculated with Dijkstra or the sweep over the hierarchy
+	static boolean isSupported(Mode mode, Algorithm algorithm) {
+		
+		if (mode != Mode.OTA && mode != Mode.OTM && mode != Mode.ATO)
+			return true;
+		
+		return algorithm == Algorithm.DIJKSTRA || algorithm == Algorithm.CH;
+	}
+	
 	// Return HashMap (filename -> data) of files in directory 'url'
 	private static HashMap<String, Server.HttpFile> getHtmlData(URL url, Logger logger) throws IOException, FatalFailure {
 		
@@ -508,10 +786,40 @@ public class Main {
 			  break;
 			
 			case OTO:
+				
+				app.prepareDijkstra(param, logger);
+				
+				if (param.algorithm == Algorithm.BIDIRECTIONAL)
+					app.prepareBidirectional(param);
+				
+				if (param.algorithm == Algorithm.ASTAR)
+					app.prepareAStar(param, logger);
+				
+				if (param.algorithm == Algorithm.ALT)
+					app.prepareAlt(param, logger);
+				
+				if (param.algorithm == Algorithm.CH)
+					app.prepareHierarchy(param, logger);
+				
+				if (param.algorithm == Algorithm.HL)
+					app.prepareHubLabels(param, logger);
+				break;
+				
 			case OTA:
 			case OTM:
 				
-				app.prepareDijkstra();
+				if (param.algorithm == Algorithm.CH)
+					app.prepareHierarchy(param, logger);
+				else
+					app.prepareDijkstra(param, logger);
+				break;
+				
+			case ATO:
+				
+				if (param.algorithm == Algorithm.CH)
+					app.prepareHierarchy(param, logger);
+				else
+					app.prepareReverseDijkstra(param, logger);
 				break;
 				
 			case NNI:
@@ -522,7 +830,10 @@ public class Main {
 				
 			case SRV:
 				
-				app.prepare();
+				app.prepare(param, logger);
+				
+				// One context for each thread of the server
+				app.prepareContexts(param.threads);
 				break;
 				
 			case NONE:
@@ -553,6 +864,7 @@ public class Main {
 				
 			case OTA:
 			case OTM:
+			case ATO:
 				
 				app.runSingleDijkstra(param, logger);
 				break;
@@ -589,7 +901,7 @@ public class Main {
 				redirections.put("/", serverRootRedirection);
 				
 				// Start server
-				server.start(param.port, serverBacklogSize, serverRouteplannerPath, html, redirections, app, logger);
+				server.start(param.port, serverBacklogSize, param.threads, serverRouteplannerPath, html, redirections, app, logger);
 				hook.server = server;
 				
 				System.out.println(System.lineSeparator() + "Server started... Press [enter] to shut down");
@@ -1,10 +1,17 @@
 package routeplanner.backend.app;
 
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+import routeplanner.backend.model.FixedPoint;
+import routeplanner.backend.model.GraphStore;
 import routeplanner.backend.model.IntStack;
 import routeplanner.backend.model.Node;
 
 /*
  * Implementation of next node algorithms
+ *   If the coordinates of the graph are in fixed-point format, the k-d tree
+ *   is stored as integers and squared distances are compared as long.
  */
 public class NextNode {
 	
@@ -39,11 +46,14 @@ public class NextNode {
 		
 		IntStack.clear(_stack);
 		
+		if (_fixedTree != null)
+			return findNextIterative(FixedPoint.fromDegreesClamped(longitude), FixedPoint.fromDegreesClamped(latitude));
+		
 		double minDistance = Double.POSITIVE_INFINITY;
 		
-		for (int i = 0; i < _data.length / 2; i++) {
+		for (int i = 0; i < _graph.nodeCount(); i++) {
 			
-			double d = distance(longitude, latitude, getProperty(0, _data, i), getProperty(1, _data, i));
+			double d = distance(longitude, latitude, _graph.longitude(i), _graph.latitude(i));
 			
 			if (d <= minDistance) {
 				
@@ -58,27 +68,57 @@ public class NextNode {
 		return minDistance;
 	}
 
+	// Find next nodes to point (longitude, latitude) iteratively in fixed-point format
+	private double findNextIterative(int longitude, int latitude) {
+		
+		long minDistance = Long.MAX_VALUE;
+		
+		for (int i = 0; i < _graph.nodeCount(); i++) {
+			
+			long d = squaredDistance(longitude, latitude, _graph.fixedLongitude(i), _graph.fixedLatitude(i));
+			
+			if (d <= minDistance) {
+				
+				if (d != minDistance) {
+
+					minDistance = d;
+					IntStack.clear(_stack);
+				}
+				IntStack.push(_stack, i);
+			}
+		}
+		return Math.sqrt(minDistance) / FixedPoint.scale;
+	}
+
 	// Find next nodes to point (longitude, latitude) in k-d tree
 	public double findNext(double longitude, double latitude) {
 		
 		IntStack.clear(_stack);
 
-		return findNext(_stack, 0, _data, _tree, 0, longitude, latitude);
+		if (_fixedTree != null) {
+			
+			long distance = findNext(_stack, 0, _graph, _fixedTree, 0,
+					FixedPoint.fromDegreesClamped(longitude), FixedPoint.fromDegreesClamped(latitude));
+
+			return Math.sqrt(distance) / FixedPoint.scale;
+		}
+
+		return findNext(_stack, 0, _graph, _tree, 0, longitude, latitude);
 	}
 	
 	// Recursively search next node in (sub)tree
-	private static double findNext(int[] results, int property, double[] data, double[] tree, int treeIndex, double current, double other) {
+	private static double findNext(int[] results, int property, GraphStore graph, DoubleBuffer tree, int treeIndex, double current, double other) {
 	  
-	  if (treeIndex * 2 + 1 >= tree.length) {
+	  if (treeIndex * 2 + 1 >= tree.limit()) {
 			// Is leaf node
-	    int index = (int)tree[treeIndex];
+	    int index = (int)tree.get(treeIndex);
 	    IntStack.push(results, index);
-	    return distance(current, other, getProperty(property, data, index), getProperty(1 - property, data, index));
+	    return distance(current, other, getProperty(property, graph, index), getProperty(1 - property, graph, index));
 	  }
 
 		// Decide whether to search first in left or right subtree
 	  int nextChild, otherChild;
-	  double threshold = tree[treeIndex] - current;
+	  double threshold = tree.get(treeIndex) - current;
 	  if (threshold < 0) {
 	    
 	    threshold = -threshold;
@@ -93,7 +133,7 @@ public class NextNode {
 	  
 	  int stackSize = IntStack.size(results);
 	  
-	  double distance = findNext(results, 1 - property, data, tree, nextChild, other, current);
+	  double distance = findNext(results, 1 - property, graph, tree, nextChild, other, current);
 	  
 	  if (distance >= threshold) {
 	    
@@ -101,7 +141,62 @@ public class NextNode {
 
 	    int newSize = IntStack.size(results);
 
-	    double e = findNext(results, 1 - property, data, tree, otherChild, other, current);
+	    double e = findNext(results, 1 - property, graph, tree, otherChild, other, current);
+	    
+	    if (e <= distance) {
+	      
+				if (e != distance) {
+
+					// Remove old results from stack
+					IntStack.remove(results, IntStack.size(results) - newSize, newSize - stackSize);
+					distance = e;
+				}
+
+			} else {
+
+				// Remove last results from stack
+				IntStack.remove(results, IntStack.size(results) - newSize);
+			}
+		}
+		return distance;
+	}
+
+	// Recursively search next node in (sub)tree in fixed-point format (returns squared distance)
+	private static long findNext(int[] results, int property, GraphStore graph, IntBuffer tree, int treeIndex, int current, int other) {
+	  
+	  if (treeIndex * 2 + 1 >= tree.limit()) {
+			// Is leaf node
+	    int index = tree.get(treeIndex);
+	    IntStack.push(results, index);
+	    return squaredDistance(current, other, getFixedProperty(property, graph, index), getFixedProperty(1 - property, graph, index));
+	  }
+
+		// Decide whether to search first in left or right subtree
+	  int nextChild, otherChild;
+	  long threshold = (long)tree.get(treeIndex) - current;
+	  if (threshold < 0) {
+	    
+	    threshold = -threshold;
+	    nextChild = treeIndex * 2 + 2;
+	    otherChild = treeIndex * 2 + 1;
+
+	  } else {
+	    
+	    nextChild = treeIndex * 2 + 1;
+	    otherChild = treeIndex * 2 + 2;
+	  }
+	  
+	  int stackSize = IntStack.size(results);
+	  
+	  long distance = findNext(results, 1 - property, graph, tree, nextChild, other, current);
+	  
+	  if (distance >= threshold * threshold) {
+	    
+			// Next node possibly in other subtree
+
+	    int newSize = IntStack.size(results);
+
+	    long e = findNext(results, 1 - property, graph, tree, otherChild, other, current);
 	    
 	    if (e <= distance) {
 	      
@@ -122,45 +217,80 @@ public class NextNode {
 	}
 
 	// Create k-d tree and initialize calculation data
-	public void prepare(Node[] nodes) {
+	public void prepare(GraphStore graph) {
+		
+		_graph = graph;
 		
-		// Copy nodes to new structure and find minimum bounding box
+		// Copy coordinates to temporary structure and find minimum bounding box
+
+		int nodeCount = graph.nodeCount();
 
 		_bounds = new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
-		_data = new double[nodes.length * 2];
-		int[] indices = new int[nodes.length];
+		double[] data = new double[nodeCount * 2];
+		int[] indices = new int[nodeCount];
 		
-		for (int i = 0; i < nodes.length; i++) {
+		for (int i = 0; i < nodeCount; i++) {
 			
 		  indices[i] = i;
 
-			_data[i * 2] = nodes[i].longitude();
-			_data[i * 2 + 1] = nodes[i].latitude();
+			// Note: Values in fixed-point format are exactly representable as double
+			data[i * 2] = graph.isFixedPoint() ? graph.fixedLongitude(i) : graph.longitude(i);
+			data[i * 2 + 1] = graph.isFixedPoint() ? graph.fixedLatitude(i) : graph.latitude(i);
 			
-			if (nodes[i].longitude() < _bounds[0])
-				_bounds[0] = nodes[i].longitude();
-			if (nodes[i].longitude() > _bounds[2])
-				_bounds[2] = nodes[i].longitude();
-			if (nodes[i].latitude() < _bounds[1])
-				_bounds[1] = nodes[i].latitude();
-			if (nodes[i].latitude() > _bounds[3])
-				_bounds[3] = nodes[i].latitude();
+			if (graph.longitude(i) < _bounds[0])
+				_bounds[0] = graph.longitude(i);
+			if (graph.longitude(i) > _bounds[2])
+				_bounds[2] = graph.longitude(i);
+			if (graph.latitude(i) < _bounds[1])
+				_bounds[1] = graph.latitude(i);
+			if (graph.latitude(i) > _bounds[3])
+				_bounds[3] = graph.latitude(i);
 		}
 
 		// Create k-d tree
-		_tree = new double[nodes.length * 2 - 1];
-		createTree(_tree, 0, 0, _data, indices, 0, nodes.length - 1);
+		//   Note: The temporary structure is reordered, the coordinates
+		//     of the leaves are read from the graph afterwards
+		//   The tree is stored outside of the heap if the graph is
+		double[] tree = new double[nodeCount * 2 - 1];
+		createTree(tree, 0, 0, data, indices, 0, nodeCount - 1);
+		
+		_tree = null;
+		_fixedTree = null;
+		
+		if (graph.isFixedPoint()) {
+			
+			// Convert to integers (thresholds are coordinates, leaves are indices)
+			_fixedTree = GraphStore.allocateInts(tree.length, graph.isOffHeap());
+			for (int i = 0; i < tree.length; i++)
+				_fixedTree.put(i, (int)tree[i]);
+			
+		} else if (graph.isOffHeap()) {
+			
+			_tree = GraphStore.allocateDoubles(tree.length, true).put(tree).clear();
+			
+		} else {
+			
+			_tree = DoubleBuffer.wrap(tree);
+		}
 		
 		// Create result stack
-		_stack = IntStack.create(nodes.length);
+		_stack = IntStack.create(nodeCount);
+	}
 
-		// Recreate node structure so the index of a node matches its ID
-		for (int i = 0; i < nodes.length; i++) {
-		  _data[i * 2] = nodes[i].longitude();
-		  _data[i * 2 + 1] = nodes[i].latitude();
-		}
+	public NextNode() {
 	}
-	
+
+	// Copy of a prepared instance (shares the k-d tree, for calculation on another thread)
+	public NextNode(NextNode prepared) {
+
+		_graph = prepared._graph;
+		_tree = prepared._tree;
+		_fixedTree = prepared._fixedTree;
+		_bounds = prepared._bounds;
+
+		_stack = IntStack.create(_graph.nodeCount());
+	}
+
 	// Create k-d (sub)tree recursively
 	private static void createTree(double[] tree, int treeIndex, int property, double[] nodes, int[] indices, int left, int right) {
 	  
@@ -243,6 +373,15 @@ public class NextNode {
 		return Math.sqrt(dx * dx + dy * dy);
 	}
 	
+	// Calculate squared Euclidean distance between two points in fixed-point format
+	private static long squaredDistance(int ax, int ay, int bx, int by) {
+		
+		long dx = (long)ax - bx;
+		long dy = (long)ay - by;
+		
+		return dx * dx + dy * dy;
+	}
+	
 	// Swap i and j in node and index array
 	private static void swap(double[] nodes, int[] indices, int i, int j) {
 		
@@ -257,18 +396,33 @@ public class NextNode {
 	  indices[j] = index;
 	}
 	
-	// Get property of node on given index
+	// Get property of node on given index (in temporary structure)
 	private static double getProperty(int property, double[] data, int index) {
 		
 		return data[index * 2 + property];
 	}
 	
+	// Get property of node with given ID (0: longitude, 1: latitude)
+	private static double getProperty(int property, GraphStore graph, int id) {
+		
+		return property == 0 ? graph.longitude(id) : graph.latitude(id);
+	}
+	
+	// Get property of node with given ID in fixed-point format (0: longitude, 1: latitude)
+	private static int getFixedProperty(int property, GraphStore graph, int id) {
+		
+		return property == 0 ? graph.fixedLongitude(id) : graph.fixedLatitude(id);
+	}
+	
 
-	// k-d tree data structure
-	public double[] _tree;
+	// k-d tree data structure (null if in fixed-point format)
+	private DoubleBuffer _tree;
+	
+	// k-d tree data structure in fixed-point format (null if stored as double)
+	private IntBuffer _fixedTree;
 	
-	// Structure to store nodes with their longitude & latitude
-	private double[] _data;
+	// Graph structure with longitude & latitude of the nodes
+	private GraphStore _graph;
 	
 	// Stack to store the calculated results
 	private int[] _stack;
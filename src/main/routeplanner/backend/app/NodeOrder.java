@@ -0,0 +1,128 @@
+package routeplanner.backend.app;
+
+import java.util.Arrays;
+
+import routeplanner.backend.model.EdgeCursor;
+import routeplanner.backend.model.GraphStore;
+
+/*
+ * Calculation of locality-preserving node orders
+ *   Nodes which are close in the graph get close indices,
+ *   so searches touch contiguous memory.
+ */
+public class NodeOrder {
+
+	// Number of bits per coordinate on the Hilbert curve
+	static final int hilbertBits = 15;
+
+
+	// Order nodes along a Hilbert curve over their coordinates
+	public static int[] hilbert(GraphStore graph) {
+
+		int nodeCount = graph.nodeCount();
+
+		// Find minimum bounding box
+		double minLongitude = Double.POSITIVE_INFINITY, minLatitude = Double.POSITIVE_INFINITY;
+		double maxLongitude = Double.NEGATIVE_INFINITY, maxLatitude = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < nodeCount; i++) {
+
+			minLongitude = Math.min(minLongitude, graph.longitude(i));
+			maxLongitude = Math.max(maxLongitude, graph.longitude(i));
+			minLatitude = Math.min(minLatitude, graph.latitude(i));
+			maxLatitude = Math.max(maxLatitude, graph.latitude(i));
+		}
+
+		int cells = (1 << hilbertBits) - 1;
+		double scaleX = maxLongitude > minLongitude ? cells / (maxLongitude - minLongitude) : 0;
+		double scaleY = maxLatitude > minLatitude ? cells / (maxLatitude - minLatitude) : 0;
+
+		// Sort by position on the curve (upper 32 bits) and index (lower 32 bits)
+		long[] keys = new long[nodeCount];
+
+		for (int i = 0; i < nodeCount; i++) {
+
+			int x = (int)((graph.longitude(i) - minLongitude) * scaleX);
+			int y = (int)((graph.latitude(i) - minLatitude) * scaleY);
+
+			keys[i] = hilbertIndex(x, y) << 32 | i;
+		}
+
+		Arrays.parallelSort(keys);
+
+		int[] order = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+			order[i] = (int)keys[i];
+
+		return order;
+	}
+
+	// Order nodes by breadth-first search over the outgoing edges
+	//   Note: Unreachable nodes start a new search in the order of their index
+	public static int[] breadthFirst(GraphStore graph) {
+
+		int nodeCount = graph.nodeCount();
+
+		// The order is used as queue
+		int[] order = new int[nodeCount];
+		boolean[] visited = new boolean[nodeCount];
+		EdgeCursor edges = new EdgeCursor(graph);
+
+		int head = 0, tail = 0;
+
+		for (int start = 0; start < nodeCount; start++) {
+
+			if (visited[start])
+				continue;
+
+			visited[start] = true;
+			order[tail++] = start;
+
+			while (head < tail) {
+
+				int current = order[head++];
+
+				for (edges.reset(current); edges.next(); ) {
+
+					int neighbor = edges.target();
+
+					if (!visited[neighbor]) {
+
+						visited[neighbor] = true;
+						order[tail++] = neighbor;
+					}
+				}
+			}
+		}
+		return order;
+	}
+
+	// Calculate the position of the cell (x, y) on the Hilbert curve
+	private static long hilbertIndex(int x, int y) {
+
+		int n = 1 << hilbertBits;
+		long d = 0;
+
+		for (int s = n / 2; s > 0; s /= 2) {
+
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+
+			d += (long)s * s * ((3 * rx) ^ ry);
+
+			// Rotate quadrant
+			if (ry == 0) {
+
+				if (rx == 1) {
+					x = n - 1 - x;
+					y = n - 1 - y;
+				}
+
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+}
@@ -0,0 +1,285 @@
+package routeplanner.backend.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import routeplanner.backend.app.FileScanner.BadEdgeException;
+import routeplanner.backend.app.FileScanner.BadHeaderException;
+import routeplanner.backend.app.FileScanner.BadNodeException;
+import routeplanner.backend.model.GraphStore;
+
+/*
+ * Parallel parsing of the graph description file
+ *   The file is mapped into memory and split into chunks at line boundaries,
+ *   which are parsed concurrently on the ForkJoin pool.
+ *   Note: Only strict parsing is supported, because the position of every
+ *     node and edge line has to be known before the chunks are parsed
+ */
+public class ParallelFileScanner {
+
+	// Nominal size of a chunk in bytes
+	static final int chunkSize = 1 << 24;
+
+	// Size of the window to search for a line break
+	private static final int windowSize = 1 << 16;
+
+
+	/*
+	 * Task executed for a chunk of the file
+	 */
+	private interface ChunkTask {
+		void run(int chunk) throws Exception;
+	}
+
+	// Read the graph description file
+	public static GraphStore readStructure(Path file, Logger logger)
+			throws BadHeaderException, BadNodeException, BadEdgeException, IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			// Read header from the begin of the file
+			int[] cnt = new int[2];
+			ByteLineReader header = new ByteLineReader(Channels.newInputStream(channel));
+
+			FileScanner.readHeader(cnt, header, logger, false);
+
+			long bodyStart = header.position();
+
+			logger.info("Header of file parsed successfully" + System.lineSeparator()
+				+ "  " + cnt[0] + " nodes" + System.lineSeparator()
+				+ "  " + cnt[1] + " edges" + System.lineSeparator());
+
+			long[] bounds = split(channel, bodyStart);
+			int chunks = bounds.length - 1;
+
+			logger.info("Parsing " + chunks + " chunk(s) on " + ForkJoinPool.commonPool().getParallelism() + " thread(s)");
+
+			// Count relevant lines in each chunk to find out the first line number of the chunks
+			long[] lines = new long[chunks + 1];
+
+			runParallel(chunks, (chunk) -> {
+
+				lines[chunk + 1] = countLines(channel, bounds[chunk], bounds[chunk + 1]);
+			});
+
+			for (int i = 0; i < chunks; i++)
+				lines[i + 1] += lines[i];
+
+			// Parse nodes and edges
+			int[] ids = new int[cnt[0]];
+			double[] latitudes = new double[cnt[0]];
+			double[] longitudes = new double[cnt[0]];
+			int[] sources = new int[cnt[1]];
+			int[] targets = new int[cnt[1]];
+			int[] costs = new int[cnt[1]];
+
+			// Note: Errors are reported in the order of the lines (like in 'FileScanner'),
+			//   so the nodes are checked before a bad edge or the end of the file is reported
+			int nodeLines = (int)Math.min(lines[chunks], cnt[0]);
+
+			try {
+
+				runParallel(chunks, (chunk) -> {
+
+					parseChunk(channel, bounds[chunk], bounds[chunk + 1], lines[chunk],
+							ids, latitudes, longitudes, sources, targets, costs);
+				});
+
+			} catch (BadEdgeException ex) {
+
+				checkNodes(ids, nodeLines);
+				throw ex;
+			}
+
+			checkNodes(ids, nodeLines);
+
+			if (lines[chunks] < cnt[0])
+				throw new BadNodeException("Unexpected end of file");
+
+			if (lines[chunks] < (long)cnt[0] + cnt[1])
+				throw new BadEdgeException("Unexpected end of file");
+
+			logger.info("Nodes parsed" + System.lineSeparator());
+			logger.info("Edges parsed" + System.lineSeparator());
+
+			GraphStore graph = GraphStore.fromEdges(latitudes, longitudes, sources, targets, costs);
+
+			logger.info("Adjacency graph created");
+
+			return graph;
+		}
+	}
+
+	// Check that the nodeIDs of the first 'count' nodes are unique
+	private static void checkNodes(int[] ids, int count) throws BadNodeException {
+
+		boolean[] found = new boolean[ids.length];
+
+		for (int i = 0; i < count; i++) {
+
+			if (found[ids[i]])
+				throw new BadNodeException("Ambiguous nodeID");
+
+			found[ids[i]] = true;
+		}
+	}
+
+	// Split the body of the file into chunks aligned on line breaks
+	private static long[] split(FileChannel channel, long start) throws IOException {
+
+		ArrayList<Long> bounds = new ArrayList<Long>();
+
+		long size = channel.size();
+		long position = start;
+
+		bounds.add(position);
+
+		while (position < size) {
+
+			position = position + chunkSize >= size ? size : findLineBreak(channel, position + chunkSize) + 1;
+			position = Math.min(position, size);
+
+			bounds.add(position);
+		}
+
+		long[] result = new long[bounds.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = bounds.get(i);
+
+		return result;
+	}
+
+	// Find the position of the next line break (or end of file)
+	private static long findLineBreak(FileChannel channel, long position) throws IOException {
+
+		long size = channel.size();
+
+		while (position < size) {
+
+			ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+
+			for (int i = 0; i < window.limit(); i++)
+				if (window.get(i) == '\n')
+					return position + i;
+
+			position += window.limit();
+		}
+		return size;
+	}
+
+	// Count lines which are neither empty nor a comment (directly on the mapped bytes, without a copy)
+	//   Note: A line is relevant like in 'ByteLineReader.nextRelevantLine()'
+	private static long countLines(FileChannel channel, long start, long end) throws IOException {
+
+		ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+
+		long count = 0;
+		boolean isBlank = true;
+
+		for (int i = 0; i < data.limit(); i++) {
+
+			byte c = data.get(i);
+
+			if (c == '\n') {
+
+				isBlank = true;
+
+			} else if (isBlank && !ByteLineReader.isWhitespace(c)) {
+
+				// First character of the line decides
+				if (c != '#')
+					count++;
+
+				isBlank = false;
+			}
+		}
+		return count;
+	}
+
+	// Parse nodes and edges of a chunk starting with the line number 'firstLine'
+	private static void parseChunk(FileChannel channel, long start, long end, long firstLine,
+			int[] ids, double[] latitudes, double[] longitudes, int[] sources, int[] targets, int[] costs)
+				throws BadNodeException, BadEdgeException, IOException {
+
+		ByteLineReader reader = new ByteLineReader(read(channel, start, end));
+
+		long lineNumber = firstLine;
+		long lastLine = (long)ids.length + sources.length;
+
+		for (; lineNumber < lastLine && reader.nextRelevantLine(); lineNumber++) {
+
+			if (lineNumber < ids.length)
+				ids[(int)lineNumber] = FileScanner.parseNode(reader, latitudes, longitudes, null);
+			else
+				FileScanner.parseEdge(reader, (int)(lineNumber - ids.length), ids.length, sources, targets, costs);
+		}
+	}
+
+	// Run a task for every chunk on the ForkJoin pool
+	//   Note: If tasks fail, the exception of the first chunk is thrown
+	private static void runParallel(int chunks, ChunkTask task)
+			throws BadNodeException, BadEdgeException, IOException {
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+		for (int i = 0; i < chunks; i++) {
+
+			int chunk = i;
+			tasks.add(() -> {
+				task.run(chunk);
+				return null;
+			});
+		}
+
+		for (Future<Void> result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+
+			try {
+
+				result.get();
+
+			} catch (InterruptedException ex) {
+
+				throw new IOException("Parsing interrupted");
+
+			} catch (ExecutionException ex) {
+
+				// Note: The pool wraps checked exceptions into runtime exceptions
+				Throwable cause = ex.getCause();
+				while (cause instanceof RuntimeException && cause.getCause() != null)
+					cause = cause.getCause();
+
+				if (cause instanceof BadNodeException)
+					throw (BadNodeException)cause;
+				if (cause instanceof BadEdgeException)
+					throw (BadEdgeException)cause;
+				if (cause instanceof IOException)
+					throw (IOException)cause;
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException)cause;
+
+				throw new IOException(cause);
+			}
+		}
+	}
+
+	// Copy a part of the file into memory (only once, for parsing)
+	private static byte[] read(FileChannel channel, long start, long end) throws IOException {
+
+		byte[] data = new byte[(int)(end - start)];
+
+		if (data.length != 0)
+			channel.map(FileChannel.MapMode.READ_ONLY, start, data.length).get(data);
+
+		return data;
+	}
+}
@@ -0,0 +1,51 @@
+package routeplanner.backend.app;
+
+import java.util.IdentityHashMap;
+import java.util.function.UnaryOperator;
+
+import routeplanner.backend.model.PathBuffer;
+
+/*
+ * Scratch data of the calculations of one request
+ *   The prepared engines of 'App' hold the graph and index data, which is not changed
+ *   by a calculation. A context holds its own copies of the engines (created on first
+ *   use), which share this data but have their own search state. A context is leased
+ *   by one request at a time, so requests with different contexts run in parallel.
+ */
+class QueryContext {
+	
+	QueryContext(int nodeCount) {
+		_nodeCount = nodeCount;
+	}
+	
+	// Copy of the prepared engine for this context (null if not prepared)
+	@SuppressWarnings("unchecked")
+	<T> T engine(T prepared, UnaryOperator<T> copy) {
+		
+		if (prepared == null)
+			return null;
+		
+		return (T)_engines.computeIfAbsent(prepared, (p) -> copy.apply(prepared));
+	}
+	
+	// Cleared buffer for the result of a calculation
+	PathBuffer clearedPath() {
+		
+		if (_path == null)
+			_path = new PathBuffer(_nodeCount);
+		else
+			_path.clear();
+		
+		return _path;
+	}
+	
+	
+	// Number of nodes of the graph
+	private int _nodeCount;
+	
+	// Copy of each prepared engine
+	private IdentityHashMap<Object, Object> _engines = new IdentityHashMap<>();
+	
+	// Result buffer (null until first use)
+	private PathBuffer _path;
+}
@@ -2,11 +2,11 @@ package routeplanner.backend.app;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.net.InetSocketAddress;
 
@@ -90,7 +90,7 @@ public class Server {
 				
 				Parameters param = new Parameters();
 				param.isTolerant = false;
-				param.requestIn = new BufferedReader(new InputStreamReader(t.getRequestBody()));
+				param.requestIn = new ByteLineReader(t.getRequestBody());
 				param.requestOut = new BufferedWriter(new OutputStreamWriter(out));
 				
 
@@ -124,6 +124,11 @@ public class Server {
 						param.mode = Mode.OTM;
 						break;
 						
+					case "ato":
+						
+						param.mode = Mode.ATO;
+						break;
+						
 					case "nni":
 						
 						param.mode = Mode.NNI;
@@ -151,6 +156,16 @@ public class Server {
 						
 					default:
 						
+						if (option.startsWith("alg=")) {
+							
+							// Parse algorithm for one-to-one calculation
+							param.algorithm = Main.parseAlgorithm(option.substring(4));
+							
+							if (param.algorithm == null)
+								throw new FatalFailure(Code.BAD_REQUEST, "Unknown algorithm provided");
+							break;
+						}
+						
 						try {
 							// Parse start point for single Dijkstra calculation
 							param.start = Integer.parseUnsignedInt(option);
@@ -162,6 +177,9 @@ public class Server {
 					}
 				}
 				
+				if (!Main.isSupported(param.mode, param.algorithm))
+					throw new FatalFailure(Code.BAD_REQUEST, "Algorithm not provided for the operation");
+				
 				
 				// Run calculation
 				
@@ -179,6 +197,7 @@ public class Server {
 					
 				case OTA:
 				case OTM:
+				case ATO:
 					
 					_app.runSingleDijkstra(param, _logger);
 					break;
@@ -261,8 +280,8 @@ public class Server {
 	}
 	
 	
-	// Start the server instance
-	public void start(int port, int backlog, String routeplannerPath, HashMap<String, HttpFile> html, HashMap<String, String> redirections, App app, Logger logger) throws IOException {
+	// Start the server instance (requests are handled by 'threads' threads)
+	public void start(int port, int backlog, int threads, String routeplannerPath, HashMap<String, HttpFile> html, HashMap<String, String> redirections, App app, Logger logger) throws IOException {
 		
 		logger.info("Broadcasting files:");
 		for (String path : html.keySet())
@@ -276,7 +295,9 @@ public class Server {
 		_server = HttpServer.create(new InetSocketAddress(port), backlog);
 		_server.createContext("/", new HtmlHandler());
 		_server.createContext(routeplannerPath, new CalculationHandler());
-		_server.setExecutor(null);
+		_executor = Executors.newFixedThreadPool(threads);
+
+		_server.setExecutor(_executor);
 		_server.start();
 	}
 	
@@ -284,12 +305,16 @@ public class Server {
 	public void stop(int timeout) {
 		
 		_server.stop(timeout);
+		_executor.shutdown();
 	}
 
 
 	// The server object
 	private HttpServer _server;
 	
+	// Threads of the request handlers
+	private ExecutorService _executor;
+	
 	// Files to serve (URI-path -> data)
 	private HashMap<String, HttpFile> _html;
 	
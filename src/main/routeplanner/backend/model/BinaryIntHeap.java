@@ -0,0 +1,48 @@
+package routeplanner.backend.model;
+
+import java.util.Arrays;
+
+/*
+ * Binary heap with lazy deletion (queue on an array of 'IntHeap')
+ *   A decreased key is inserted as new entry, the old one stays in the heap.
+ *   The heap grows if there are more entries than IDs.
+ */
+public class BinaryIntHeap implements IntQueue {
+	
+	public BinaryIntHeap(int capacity) {
+		_heap = IntHeap.create(capacity);
+	}
+	
+	@Override
+	public void insert(int id, int key) {
+		
+		if (IntHeap.size(_heap) == IntHeap.capacity(_heap))
+			_heap = Arrays.copyOf(_heap, _heap.length * 2 + 1);
+		
+		IntHeap.insert(_heap, id, key);
+	}
+	
+	@Override
+	public int poll() {
+		return IntHeap.poll(_heap);
+	}
+	
+	@Override
+	public int peekKey() {
+		return IntHeap.peekKey(_heap);
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return IntHeap.isEmpty(_heap);
+	}
+	
+	@Override
+	public void clear() {
+		IntHeap.clear(_heap);
+	}
+	
+	
+	// Heap array (see 'IntHeap')
+	private int[] _heap;
+}
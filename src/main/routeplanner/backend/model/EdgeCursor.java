@@ -0,0 +1,137 @@
+package routeplanner.backend.model;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/*
+ * Iterator over the outgoing edges of a node
+ *   Works on raw and compressed edges (see 'GraphStore.toCompressed()').
+ *   Raw edges on the heap are read directly from the arrays of the graph.
+ *   Usage: for (cursor.reset(node); cursor.next(); ) { cursor.target() ... }
+ */
+public class EdgeCursor {
+
+	public EdgeCursor(GraphStore graph) {
+
+		_offsets = graph.offsets();
+		_targets = graph.targets();
+		_costs = graph.costs();
+		_data = graph.edgeData();
+
+		_offsetArray = GraphStore.array(_offsets);
+		_targetArray = GraphStore.array(_targets);
+		_costArray = GraphStore.array(_costs);
+	}
+
+	// Move in front of the first edge of the node
+	public void reset(int node) {
+
+		if (_offsetArray != null) {
+
+			_position = _offsetArray[node];
+			_end = _offsetArray[node + 1];
+
+		} else {
+
+			_position = _offsets.get(node);
+			_end = _offsets.get(node + 1);
+		}
+		_target = node;
+	}
+
+	// Move to the next edge, return false if there is none
+	public boolean next() {
+
+		if (_position >= _end)
+			return false;
+
+		if (_targetArray != null) {
+
+			_target = _targetArray[_position];
+			_cost = _costArray[_position];
+			_position++;
+
+		} else if (_data == null) {
+
+			_target = _targets.get(_position);
+			_cost = _costs.get(_position);
+			_position++;
+
+		} else {
+
+			// Target is stored as difference to the previous target (or source) in zigzag encoding
+			int delta = readVarint();
+			_target += (delta >>> 1) ^ -(delta & 1);
+			_cost = readVarint();
+		}
+		return true;
+	}
+
+	// Position of the next edge (to continue later with 'resume()')
+	public int position() {
+		return _position;
+	}
+
+	// Continue with the edges of the node on a position returned by 'position()'
+	//   Note: 'target' has to be the target of the edge before the position (or the node itself)
+	public void resume(int node, int position, int target) {
+
+		_position = position;
+		_end = _offsetArray != null ? _offsetArray[node + 1] : _offsets.get(node + 1);
+		_target = target;
+	}
+
+	// Target node of the current edge
+	public int target() {
+		return _target;
+	}
+
+	// Cost of the current edge
+	public int cost() {
+		return _cost;
+	}
+
+	// Decode variable-length integer (7 bits per byte, least significant first)
+	private int readVarint() {
+
+		int b = _data.get(_position++);
+		if (b >= 0)
+			return b;
+
+		int value = b & 0x7f;
+
+		for (int shift = 7; ; shift += 7) {
+
+			b = _data.get(_position++);
+			value |= (b & 0x7f) << shift;
+
+			if (b >= 0)
+				return value;
+		}
+	}
+
+
+	// Edge positions of the graph
+	private IntBuffer _offsets;
+
+	// Raw edges of the graph (null if compressed)
+	private IntBuffer _targets;
+	private IntBuffer _costs;
+
+	// Arrays of the edge positions and raw edges (null if outside of the heap or compressed)
+	private int[] _offsetArray;
+	private int[] _targetArray;
+	private int[] _costArray;
+
+	// Compressed edges of the graph (null if raw)
+	private ByteBuffer _data;
+
+	// Position of the next edge
+	private int _position;
+	// Position after the last edge
+	private int _end;
+
+	// Target and cost of the current edge
+	private int _target;
+	private int _cost;
+}
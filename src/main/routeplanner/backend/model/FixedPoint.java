@@ -0,0 +1,69 @@
+package routeplanner.backend.model;
+
+/*
+ * Static helper class for coordinates in fixed-point format
+ *   A coordinate is stored as integer number of microdegrees (degrees * 10^6).
+ */
+public class FixedPoint {
+
+	// Number of units per degree
+	public static final int scale = 1000000;
+
+	// Number of decimal places
+	static final int decimals = 6;
+
+	// Maximum absolute value in degrees
+	//   Note: Limited so that the sum of two squared differences fits into a long
+	public static final int limit = 1000;
+
+
+	// Check if the coordinate can be converted
+	public static boolean isValid(double degrees) {
+		return degrees >= -limit && degrees <= limit;
+	}
+
+	// Convert degrees to fixed-point format (rounded to the nearest unit)
+	public static int fromDegrees(double degrees) {
+		return (int)Math.round(degrees * scale);
+	}
+
+	// Convert degrees to fixed-point format, values out of range are clamped
+	public static int fromDegreesClamped(double degrees) {
+
+		if (Double.isNaN(degrees))
+			return 0;
+
+		return fromDegrees(Math.max(-limit, Math.min(limit, degrees)));
+	}
+
+	// Convert fixed-point format to degrees
+	public static double toDegrees(int value) {
+		return (double)value / scale;
+	}
+
+	// Format as decimal number without trailing zeros (at least one decimal place)
+	public static String format(int value) {
+
+		StringBuilder builder = new StringBuilder(12);
+
+		long v = value;
+		if (v < 0) {
+			builder.append('-');
+			v = -v;
+		}
+
+		builder.append(v / scale).append('.');
+
+		int fraction = (int)(v % scale);
+		int digits = decimals;
+
+		for (; digits > 1 && fraction % 10 == 0; digits--)
+			fraction /= 10;
+
+		// Leading zeros of the fraction
+		for (int i = Integer.toString(fraction).length(); i < digits; i++)
+			builder.append('0');
+
+		return builder.append(fraction).toString();
+	}
+}
@@ -0,0 +1,569 @@
+package routeplanner.backend.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/*
+ * Graph in compressed sparse row format
+ *   The edges of node i are stored on the positions offsets[i] to offsets[i + 1] - 1
+ *   Nodes could be stored in a different order than their IDs (see 'reorder()'),
+ *   the IDs of the graph description file are called external IDs.
+ *   Coordinates are stored either as double or in fixed-point format (see 'toFixedPoint()').
+ *   The data is stored in buffers, which wrap arrays on the heap or
+ *   are located outside of the heap (see 'toOffHeap()'). On the heap, the
+ *   coordinates and raw edges are read directly from the wrapped arrays.
+ *   Edges are stored either raw or compressed (see 'toCompressed()'),
+ *   they are accessed through an 'EdgeCursor'.
+ */
+public class GraphStore {
+
+	public GraphStore(double[] latitudes, double[] longitudes,
+			int[] offsets, int[] targets, int[] costs) {
+
+		this(latitudes, longitudes, offsets, targets, costs, null);
+	}
+
+	// Create graph with external IDs (null if the index of a node is its ID)
+	public GraphStore(double[] latitudes, double[] longitudes,
+			int[] offsets, int[] targets, int[] costs, int[] ids) {
+
+		this(DoubleBuffer.wrap(latitudes), DoubleBuffer.wrap(longitudes),
+			IntBuffer.wrap(offsets), IntBuffer.wrap(targets), IntBuffer.wrap(costs),
+			ids == null ? null : IntBuffer.wrap(ids));
+	}
+
+	// Create graph from buffers (e.g. mapped from a file)
+	public GraphStore(DoubleBuffer latitudes, DoubleBuffer longitudes,
+			IntBuffer offsets, IntBuffer targets, IntBuffer costs, IntBuffer ids) {
+
+		_latitudes = latitudes;
+		_longitudes = longitudes;
+		_offsets = offsets;
+		_targets = targets;
+		_costs = costs;
+		_ids = ids;
+		_edgeCount = targets.limit();
+
+		linkCoordinates();
+
+		if (ids != null) {
+
+			_indices = allocateInts(ids.limit(), ids.isDirect());
+
+			for (int i = 0; i < ids.limit(); i++)
+				_indices.put(ids.get(i), i);
+		}
+	}
+
+	// Create graph with the edges and IDs of another graph
+	private GraphStore(GraphStore graph, DoubleBuffer latitudes, DoubleBuffer longitudes,
+			IntBuffer fixedLatitudes, IntBuffer fixedLongitudes) {
+
+		_offsets = graph._offsets;
+		_targets = graph._targets;
+		_costs = graph._costs;
+		_edgeData = graph._edgeData;
+		_edgeCount = graph._edgeCount;
+		_ids = graph._ids;
+		_indices = graph._indices;
+		_latitudes = latitudes;
+		_longitudes = longitudes;
+		_fixedLatitudes = fixedLatitudes;
+		_fixedLongitudes = fixedLongitudes;
+
+		linkCoordinates();
+	}
+
+	// Link the arrays of the coordinates on the heap
+	private void linkCoordinates() {
+
+		_latitudeArray = array(_latitudes);
+		_longitudeArray = array(_longitudes);
+		_fixedLatitudeArray = array(_fixedLatitudes);
+		_fixedLongitudeArray = array(_fixedLongitudes);
+	}
+
+	// Create graph from an edge list (edges of a node keep their order)
+	public static GraphStore fromEdges(double[] latitudes, double[] longitudes,
+			int[] sources, int[] targets, int[] costs) {
+
+		int nodeCount = latitudes.length;
+		int edgeCount = sources.length;
+
+		// Count outgoing edges per node
+		int[] offsets = new int[nodeCount + 1];
+
+		for (int src : sources)
+			offsets[src + 1]++;
+
+		// Prefix sum (offsets[i + 1] is the end of the edges of node i)
+		for (int i = 0; i < nodeCount; i++)
+			offsets[i + 1] += offsets[i];
+
+		// Fill edges from back to front (offsets[i + 1] becomes the begin of the edges of node i)
+		int[] edgeTargets = new int[edgeCount];
+		int[] edgeCosts = new int[edgeCount];
+
+		for (int i = edgeCount - 1; i >= 0; i--) {
+
+			int position = --offsets[sources[i] + 1];
+
+			edgeTargets[position] = targets[i];
+			edgeCosts[position] = costs[i];
+		}
+
+		// Shift to begin of the edges
+		System.arraycopy(offsets, 1, offsets, 0, nodeCount);
+		offsets[nodeCount] = edgeCount;
+
+		return new GraphStore(latitudes, longitudes, offsets, edgeTargets, edgeCosts);
+	}
+
+	// Create graph with renumbered nodes (node i of the new graph is node order[i] of this graph)
+	public GraphStore reorder(int[] order) {
+
+		int nodeCount = nodeCount();
+
+		int[] rank = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+			rank[order[i]] = i;
+
+		double[] latitudes = new double[nodeCount];
+		double[] longitudes = new double[nodeCount];
+		int[] offsets = new int[nodeCount + 1];
+		int[] targets = new int[edgeCount()];
+		int[] costs = new int[edgeCount()];
+		int[] ids = new int[nodeCount];
+
+		EdgeCursor edges = new EdgeCursor(this);
+
+		for (int i = 0; i < nodeCount; i++) {
+
+			int node = order[i];
+
+			latitudes[i] = latitude(node);
+			longitudes[i] = longitude(node);
+			ids[i] = externalId(node);
+
+			int position = offsets[i];
+
+			for (edges.reset(node); edges.next(); position++) {
+
+				targets[position] = rank[edges.target()];
+				costs[position] = edges.cost();
+			}
+			offsets[i + 1] = position;
+		}
+
+		GraphStore graph = new GraphStore(latitudes, longitudes, offsets, targets, costs, ids);
+
+		if (isFixedPoint())
+			graph = graph.toFixedPoint();
+		if (isCompressed())
+			graph = graph.toCompressed();
+
+		return isOffHeap() ? graph.toOffHeap() : graph;
+	}
+
+	// Create graph with reversed edges (sharing the nodes)
+	//   The edges of node i are the incoming edges of node i in this graph
+	public GraphStore reverse() {
+
+		int nodeCount = nodeCount();
+		int edgeCount = edgeCount();
+
+		EdgeCursor edges = new EdgeCursor(this);
+
+		// Count incoming edges per node
+		int[] offsets = new int[nodeCount + 1];
+
+		for (int i = 0; i < nodeCount; i++)
+			for (edges.reset(i); edges.next(); )
+				offsets[edges.target() + 1]++;
+
+		for (int i = 0; i < nodeCount; i++)
+			offsets[i + 1] += offsets[i];
+
+		// Fill edges (sources in ascending order)
+		int[] position = Arrays.copyOf(offsets, nodeCount);
+		int[] sources = new int[edgeCount];
+		int[] costs = new int[edgeCount];
+
+		for (int i = 0; i < nodeCount; i++) {
+			for (edges.reset(i); edges.next(); ) {
+
+				int p = position[edges.target()]++;
+
+				sources[p] = i;
+				costs[p] = edges.cost();
+			}
+		}
+
+		return withEdges(offsets, sources, costs);
+	}
+
+	// Create graph with other edges (sharing the nodes)
+	//   The edges are compressed and stored outside of the heap like the edges of this graph
+	public GraphStore withEdges(int[] offsets, int[] targets, int[] costs) {
+
+		GraphStore graph = new GraphStore(this, _latitudes, _longitudes, _fixedLatitudes, _fixedLongitudes);
+
+		graph._offsets = IntBuffer.wrap(offsets);
+		graph._targets = IntBuffer.wrap(targets);
+		graph._costs = IntBuffer.wrap(costs);
+		graph._edgeData = null;
+		graph._edgeCount = targets.length;
+
+		if (isCompressed())
+			graph = graph.toCompressed();
+
+		return isOffHeap() ? graph.toOffHeap() : graph;
+	}
+
+	// Create graph with coordinates in fixed-point format (sharing the edges)
+	//   Note: Throws IllegalArgumentException if a coordinate is out of range
+	public GraphStore toFixedPoint() {
+
+		if (isFixedPoint())
+			return this;
+
+		int nodeCount = nodeCount();
+
+		IntBuffer latitudes = allocateInts(nodeCount, _latitudes.isDirect());
+		IntBuffer longitudes = allocateInts(nodeCount, _longitudes.isDirect());
+
+		for (int i = 0; i < nodeCount; i++) {
+
+			if (!FixedPoint.isValid(_latitudes.get(i)) || !FixedPoint.isValid(_longitudes.get(i)))
+				throw new IllegalArgumentException("Coordinates of node " + externalId(i) + " out of range");
+
+			latitudes.put(i, FixedPoint.fromDegrees(_latitudes.get(i)));
+			longitudes.put(i, FixedPoint.fromDegrees(_longitudes.get(i)));
+		}
+
+		return new GraphStore(this, null, null, latitudes, longitudes);
+	}
+
+	// Create graph with compressed edges (sharing the nodes)
+	//   The edges of a node are stored as sequence of variable-length integers
+	//   [target - previous target (or source) in zigzag encoding] [cost]
+	public GraphStore toCompressed() {
+
+		if (isCompressed())
+			return this;
+
+		int nodeCount = nodeCount();
+
+		// Calculate positions of the edges
+		IntBuffer offsets = allocateInts(nodeCount + 1, isOffHeap());
+
+		long size = 0;
+
+		for (int i = 0; i < nodeCount; i++) {
+
+			offsets.put(i, (int)size);
+
+			int previous = i;
+			for (int j = _offsets.get(i); j < _offsets.get(i + 1); j++) {
+
+				size += varintSize(zigzag(_targets.get(j) - previous)) + varintSize(_costs.get(j));
+				previous = _targets.get(j);
+			}
+
+			if (size > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Too many edges to compress");
+		}
+		offsets.put(nodeCount, (int)size);
+
+		// Encode edges
+		ByteBuffer data = isOffHeap() ? ByteBuffer.allocateDirect((int)size) : ByteBuffer.allocate((int)size);
+
+		for (int i = 0; i < nodeCount; i++) {
+
+			int previous = i;
+			for (int j = _offsets.get(i); j < _offsets.get(i + 1); j++) {
+
+				writeVarint(data, zigzag(_targets.get(j) - previous));
+				writeVarint(data, _costs.get(j));
+				previous = _targets.get(j);
+			}
+		}
+		data.clear();
+
+		GraphStore graph = new GraphStore(this, _latitudes, _longitudes, _fixedLatitudes, _fixedLongitudes);
+
+		graph._offsets = offsets;
+		graph._targets = null;
+		graph._costs = null;
+		graph._edgeData = data;
+
+		return graph;
+	}
+
+	// Create graph with all data outside of the heap (buffers already outside are shared)
+	public GraphStore toOffHeap() {
+
+		GraphStore graph = new GraphStore(this,
+			toOffHeap(_latitudes), toOffHeap(_longitudes),
+			toOffHeap(_fixedLatitudes), toOffHeap(_fixedLongitudes));
+
+		graph._offsets = toOffHeap(_offsets);
+		graph._targets = toOffHeap(_targets);
+		graph._costs = toOffHeap(_costs);
+		graph._edgeData = toOffHeap(_edgeData);
+		graph._ids = toOffHeap(_ids);
+		graph._indices = toOffHeap(_indices);
+
+		return graph;
+	}
+
+	// Check if the data is stored outside of the heap
+	public boolean isOffHeap() {
+		return _offsets.isDirect();
+	}
+
+	// Check if the edges are compressed
+	public boolean isCompressed() {
+		return _edgeData != null;
+	}
+
+	// Check if the coordinates are stored in fixed-point format
+	public boolean isFixedPoint() {
+		return _fixedLatitudes != null;
+	}
+
+	// Check if the nodes are stored in a different order than their IDs
+	public boolean isReordered() {
+		return _ids != null;
+	}
+
+	// External ID of the node on the given index
+	public int externalId(int node) {
+		return _ids == null ? node : _ids.get(node);
+	}
+
+	// Index of the node with the given external ID
+	public int internalId(int id) {
+		return _indices == null ? id : _indices.get(id);
+	}
+
+	public int nodeCount() {
+		return _offsets.limit() - 1;
+	}
+
+	public int edgeCount() {
+		return _edgeCount;
+	}
+
+	public double latitude(int node) {
+
+		if (_latitudeArray != null)
+			return _latitudeArray[node];
+
+		return _latitudes != null ? _latitudes.get(node) : FixedPoint.toDegrees(fixedLatitude(node));
+	}
+
+	public double longitude(int node) {
+
+		if (_longitudeArray != null)
+			return _longitudeArray[node];
+
+		return _longitudes != null ? _longitudes.get(node) : FixedPoint.toDegrees(fixedLongitude(node));
+	}
+
+	// Latitude in fixed-point format (only if 'isFixedPoint()')
+	public int fixedLatitude(int node) {
+		return _fixedLatitudeArray != null ? _fixedLatitudeArray[node] : _fixedLatitudes.get(node);
+	}
+
+	// Longitude in fixed-point format (only if 'isFixedPoint()')
+	public int fixedLongitude(int node) {
+		return _fixedLongitudeArray != null ? _fixedLongitudeArray[node] : _fixedLongitudes.get(node);
+	}
+
+	// Hash of the nodeIDs and edges (to check if data calculated for a graph belongs to this graph)
+	public long fingerprint() {
+
+		EdgeCursor edges = new EdgeCursor(this);
+
+		// FNV-1a over the integers of the structure
+		long hash = 0xcbf29ce484222325L;
+
+		for (int i = 0; i < nodeCount(); i++) {
+
+			hash = (hash ^ externalId(i)) * 0x100000001b3L;
+
+			for (edges.reset(i); edges.next(); ) {
+
+				hash = (hash ^ edges.target()) * 0x100000001b3L;
+				hash = (hash ^ edges.cost()) * 0x100000001b3L;
+			}
+			hash = (hash ^ -1) * 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	// Number of outgoing edges of the node
+	public int degree(int node) {
+
+		if (_edgeData == null)
+			return _offsets.get(node + 1) - _offsets.get(node);
+
+		EdgeCursor edges = new EdgeCursor(this);
+
+		int count = 0;
+		for (edges.reset(node); edges.next(); )
+			count++;
+
+		return count;
+	}
+
+	// Size of the edges in memory (in bytes)
+	public long edgeSize() {
+		return _edgeData != null ? _edgeData.limit() : (long)_edgeCount * 2 * Integer.BYTES;
+	}
+
+	// Position of the edges of each node (in bytes if compressed)
+	IntBuffer offsets() {
+		return _offsets;
+	}
+
+	// Target of each raw edge (null if compressed)
+	IntBuffer targets() {
+		return _targets;
+	}
+
+	// Cost of each raw edge (null if compressed)
+	IntBuffer costs() {
+		return _costs;
+	}
+
+	// Compressed edges (null if raw)
+	ByteBuffer edgeData() {
+		return _edgeData;
+	}
+
+	// Array wrapped by a buffer on the heap (null if the buffer is null or outside of the heap)
+	static int[] array(IntBuffer buffer) {
+		return buffer != null && buffer.hasArray() && buffer.arrayOffset() == 0 ? buffer.array() : null;
+	}
+
+	// Array wrapped by a buffer on the heap (null if the buffer is null or outside of the heap)
+	static double[] array(DoubleBuffer buffer) {
+		return buffer != null && buffer.hasArray() && buffer.arrayOffset() == 0 ? buffer.array() : null;
+	}
+
+	// Allocate integer buffer on the heap or outside of the heap
+	public static IntBuffer allocateInts(int count, boolean offHeap) {
+
+		if (!offHeap)
+			return IntBuffer.allocate(count);
+
+		return ByteBuffer.allocateDirect(count * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	// Allocate double buffer on the heap or outside of the heap
+	public static DoubleBuffer allocateDoubles(int count, boolean offHeap) {
+
+		if (!offHeap)
+			return DoubleBuffer.allocate(count);
+
+		return ByteBuffer.allocateDirect(count * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+	}
+
+	// Copy integer buffer outside of the heap (null and buffers already outside are returned)
+	private static IntBuffer toOffHeap(IntBuffer buffer) {
+
+		if (buffer == null || buffer.isDirect())
+			return buffer;
+
+		IntBuffer result = allocateInts(buffer.limit(), true);
+		result.put(buffer.duplicate().clear()).clear();
+		return result;
+	}
+
+	// Copy byte buffer outside of the heap (null and buffers already outside are returned)
+	private static ByteBuffer toOffHeap(ByteBuffer buffer) {
+
+		if (buffer == null || buffer.isDirect())
+			return buffer;
+
+		ByteBuffer result = ByteBuffer.allocateDirect(buffer.limit());
+		result.put(buffer.duplicate().clear()).clear();
+		return result;
+	}
+
+	// Copy double buffer outside of the heap (null and buffers already outside are returned)
+	private static DoubleBuffer toOffHeap(DoubleBuffer buffer) {
+
+		if (buffer == null || buffer.isDirect())
+			return buffer;
+
+		DoubleBuffer result = allocateDoubles(buffer.limit(), true);
+		result.put(buffer.duplicate().clear()).clear();
+		return result;
+	}
+
+	// Map signed to unsigned integer (small absolute values to small values)
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	// Number of bytes of a variable-length integer
+	private static int varintSize(int value) {
+
+		int size = 1;
+		for (; (value & ~0x7f) != 0; value >>>= 7)
+			size++;
+
+		return size;
+	}
+
+	// Encode variable-length integer (7 bits per byte, least significant first)
+	private static void writeVarint(ByteBuffer buffer, int value) {
+
+		for (; (value & ~0x7f) != 0; value >>>= 7)
+			buffer.put((byte)((value & 0x7f) | 0x80));
+
+		buffer.put((byte)value);
+	}
+
+
+	// Latitude of each node (null if in fixed-point format)
+	private DoubleBuffer _latitudes;
+	// Longitude of each node (null if in fixed-point format)
+	private DoubleBuffer _longitudes;
+
+	// Latitude of each node in fixed-point format (null if stored as double)
+	private IntBuffer _fixedLatitudes;
+	// Longitude of each node in fixed-point format (null if stored as double)
+	private IntBuffer _fixedLongitudes;
+
+	// Coordinates on the heap (null if outside of the heap or in the other format)
+	private double[] _latitudeArray;
+	private double[] _longitudeArray;
+	private int[] _fixedLatitudeArray;
+	private int[] _fixedLongitudeArray;
+
+	// Position of the first edge of each node (and end of the last edge)
+	private IntBuffer _offsets;
+
+	// Target node of each edge (null if compressed)
+	private IntBuffer _targets;
+	// Cost (distance) of each edge (null if compressed)
+	private IntBuffer _costs;
+
+	// Compressed edges (null if raw)
+	private ByteBuffer _edgeData;
+
+	// Total number of edges
+	private int _edgeCount;
+
+	// External ID of each node (null if not reordered)
+	private IntBuffer _ids;
+	// Index of each external ID (null if not reordered)
+	private IntBuffer _indices;
+}
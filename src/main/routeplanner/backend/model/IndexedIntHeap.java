@@ -0,0 +1,138 @@
+package routeplanner.backend.model;
+
+import java.util.Arrays;
+
+/*
+ * 4-ary heap with the position of each ID
+ *   Every ID is contained at most once, a decreased key is changed in place.
+ *   The children of index i are on the indices 4i + 1 to 4i + 4, so a heap of
+ *   the same size has half the height of a binary heap. Keys are sifted iteratively.
+ */
+public class IndexedIntHeap implements IntQueue {
+	
+	public IndexedIntHeap(int capacity) {
+		
+		_ids = new int[capacity];
+		_keys = new int[capacity];
+		
+		_positions = new int[capacity];
+		Arrays.fill(_positions, -1);
+	}
+	
+	@Override
+	public void insert(int id, int key) {
+		
+		int index = _positions[id];
+		
+		if (index < 0) {
+			
+			// New entry at the end
+			index = _size++;
+			
+		} else if (key >= _keys[index]) {
+			
+			// Key is not decreased
+			return;
+		}
+		
+		siftUp(index, id, key);
+	}
+	
+	@Override
+	public int poll() {
+		
+		int first = _ids[0];
+		_positions[first] = -1;
+		
+		_size--;
+		
+		// Move last entry to the root and sift it down
+		if (_size > 0)
+			siftDown(0, _ids[_size], _keys[_size]);
+		
+		return first;
+	}
+	
+	@Override
+	public int peekKey() {
+		return _keys[0];
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return _size == 0;
+	}
+	
+	@Override
+	public void clear() {
+		
+		// Note: Only the positions of contained IDs are reset
+		for (int i = 0; i < _size; i++)
+			_positions[_ids[i]] = -1;
+		
+		_size = 0;
+	}
+	
+	// Move entry up from the index until the parent key is not greater
+	private void siftUp(int index, int id, int key) {
+		
+		while (index > 0) {
+			
+			int parent = (index - 1) >> 2;
+			
+			if (_keys[parent] <= key)
+				break;
+			
+			set(index, _ids[parent], _keys[parent]);
+			index = parent;
+		}
+		
+		set(index, id, key);
+	}
+	
+	// Move entry down from the index until no child key is smaller
+	private void siftDown(int index, int id, int key) {
+		
+		while (true) {
+			
+			int first = (index << 2) + 1;
+			
+			if (first >= _size)
+				break;
+			
+			// Find child with minimal key
+			int min = first;
+			int last = Math.min(first + 4, _size);
+			
+			for (int child = first + 1; child < last; child++)
+				if (_keys[child] < _keys[min])
+					min = child;
+			
+			if (_keys[min] >= key)
+				break;
+			
+			set(index, _ids[min], _keys[min]);
+			index = min;
+		}
+		
+		set(index, id, key);
+	}
+	
+	private void set(int index, int id, int key) {
+		
+		_ids[index] = id;
+		_keys[index] = key;
+		_positions[id] = index;
+	}
+	
+	
+	// ID and key of each entry
+	private int[] _ids;
+	private int[] _keys;
+	
+	// Index of each ID in the heap (-1 if not contained)
+	private int[] _positions;
+	
+	// Current number of entries
+	private int _size;
+}
@@ -98,6 +98,11 @@ public class IntHeap {
 		return id(heap, 0);
 	}
 
+	// Get minimal key
+	public static int peekKey(int[] heap) {
+		return key(heap, 0);
+	}
+
 	// Remove all entries from the queue
 	public static void clear(int[] heap) {
 		setSize(heap, 0);
@@ -0,0 +1,51 @@
+package routeplanner.backend.model;
+
+/*
+ * Priority queue of integer IDs with integer keys (minimal key first)
+ *   'insert()' adds an ID or decreases its key. An implementation may keep an ID
+ *   multiple times (lazy deletion), so IDs which are already finished have to be
+ *   skipped when they are polled.
+ */
+public interface IntQueue {
+	
+	/*
+	 * Implementations of the queue
+	 */
+	static enum Type {
+		BINARY,  // binary heap with lazy deletion (see 'IntHeap')
+		INDEXED, // 4-ary heap with position of each ID (decrease-key)
+		RADIX    // radix heap (only for monotone keys)
+	}
+	
+	// Create a queue of the type for IDs from 0 to 'capacity - 1'
+	static IntQueue create(Type type, int capacity) {
+		
+		switch (type) {
+		
+		case INDEXED:
+			return new IndexedIntHeap(capacity);
+			
+		case RADIX:
+			return new RadixIntHeap();
+			
+		default:
+			return new BinaryIntHeap(capacity);
+		}
+	}
+	
+	// Insert ID or decrease its key
+	void insert(int id, int key);
+	
+	// Get and remove first ID (minimal key)
+	int poll();
+	
+	// Get minimal key
+	//   Note: With lazy deletion the key could belong to an ID which is already finished
+	int peekKey();
+	
+	// Check if the queue is empty
+	boolean isEmpty();
+	
+	// Remove all entries from the queue
+	void clear();
+}
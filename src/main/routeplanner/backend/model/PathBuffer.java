@@ -0,0 +1,69 @@
+package routeplanner.backend.model;
+
+import java.util.Arrays;
+
+/*
+ * Distances and previous nodes set by a calculation (for results which are not read from the search data)
+ *   Nodes which are not set are unreachable. Only the set nodes are reset by 'clear()',
+ *   so a buffer could be reused for short paths without a pass over all nodes.
+ */
+public class PathBuffer implements PathResult {
+	
+	public PathBuffer(int nodeCount) {
+		
+		_distances = new int[nodeCount];
+		_previous = new int[nodeCount];
+		
+		Arrays.fill(_distances, -1);
+		Arrays.fill(_previous, -1);
+		
+		_touched = new int[Math.max(nodeCount, 1)];
+	}
+	
+	@Override
+	public int distance(int node) {
+		return _distances[node];
+	}
+	
+	@Override
+	public int previous(int node) {
+		return _previous[node];
+	}
+	
+	// Set distance and previous node (-1 if none)
+	public void set(int node, int distance, int previous) {
+		
+		if (_distances[node] == -1 && _previous[node] == -1) {
+			
+			// Note: A node could be set again after it was set unreachable
+			if (_touchedCount == _touched.length)
+				_touched = Arrays.copyOf(_touched, _touchedCount * 2);
+			
+			_touched[_touchedCount++] = node;
+		}
+		
+		_distances[node] = distance;
+		_previous[node] = previous;
+	}
+	
+	// Reset all set nodes to unreachable
+	public void clear() {
+		
+		for (int i = 0; i < _touchedCount; i++) {
+			
+			_distances[_touched[i]] = -1;
+			_previous[_touched[i]] = -1;
+		}
+		
+		_touchedCount = 0;
+	}
+	
+	
+	// Distance and previous node of each node
+	private int[] _distances;
+	private int[] _previous;
+	
+	// Nodes set since the last reset
+	private int[] _touched;
+	private int _touchedCount;
+}
@@ -0,0 +1,47 @@
+package routeplanner.backend.model;
+
+/*
+ * Iterator over the nodes of a path (from a node over its previous nodes)
+ *   Usage: for (cursor.reset(node); cursor.next(); ) { cursor.node() ... }
+ */
+public class PathCursor {
+	
+	public PathCursor(PathResult result) {
+		_result = result;
+	}
+	
+	// Move in front of the node
+	public void reset(int node) {
+		_next = node;
+	}
+	
+	// Move to the next node of the path, return false if there is none
+	public boolean next() {
+		
+		if (_next < 0)
+			return false;
+		
+		_node = _next;
+		_next = _result.previous(_node);
+		
+		return true;
+	}
+	
+	// Current node
+	public int node() {
+		return _node;
+	}
+	
+	// Distance of the current node
+	public int distance() {
+		return _result.distance(_node);
+	}
+	
+	
+	// Result with the previous nodes
+	private PathResult _result;
+	
+	// Current and next node (-1 at the end of the path)
+	private int _node;
+	private int _next = -1;
+}
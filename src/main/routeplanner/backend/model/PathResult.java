@@ -0,0 +1,16 @@
+package routeplanner.backend.model;
+
+/*
+ * Read-only view of the result of a shortest path calculation
+ *   The distances and previous nodes are read directly from the data of the
+ *   calculation, so a view is only valid until the next calculation.
+ *   Nodes are the internal indices of the graph (see 'GraphStore.internalId()').
+ */
+public interface PathResult {
+	
+	// Distance of the node (-1 if unreachable)
+	int distance(int node);
+	
+	// Previous node on the path (next node on the path to the target for all-to-one, -1 if none)
+	int previous(int node);
+}
@@ -0,0 +1,131 @@
+package routeplanner.backend.model;
+
+import java.util.Arrays;
+
+/*
+ * Radix heap for monotone keys (with lazy deletion)
+ *   A key is never smaller than the last polled key ('Dijkstra' with non-negative
+ *   costs). Bucket i contains the keys which differ from the last polled key first
+ *   in bit i - 1, bucket 0 the keys equal to it. If bucket 0 is empty, the bucket
+ *   with the next keys is emptied into the lower buckets relative to its minimal key.
+ *   Each entry moves down at most 32 times instead of a sift over the heap height.
+ *   A decreased key is inserted as new entry, the old one stays in the heap.
+ */
+public class RadixIntHeap implements IntQueue {
+
+	public RadixIntHeap() {
+
+		_entries = new int[bucketCount][];
+		_sizes = new int[bucketCount];
+		_minKeys = new int[bucketCount];
+
+		for (int i = 0; i < bucketCount; i++)
+			_entries[i] = new int[initialBucketSize * 2];
+	}
+
+	@Override
+	public void insert(int id, int key) {
+
+		if (key < _last)
+			throw new IllegalArgumentException("Key is smaller than the last polled key");
+
+		add(bucket(key), id, key);
+		_size++;
+	}
+
+	@Override
+	public int poll() {
+
+		refill();
+
+		_size--;
+
+		// Note: All keys of bucket 0 are equal
+		return _entries[0][--_sizes[0] * 2];
+	}
+
+	@Override
+	public int peekKey() {
+
+		refill();
+
+		return _last;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return _size == 0;
+	}
+
+	@Override
+	public void clear() {
+
+		Arrays.fill(_sizes, 0);
+
+		_size = 0;
+		_last = 0;
+	}
+
+	// Move the entries of the next non-empty bucket to the lower buckets (if bucket 0 is empty)
+	private void refill() {
+
+		if (_sizes[0] > 0)
+			return;
+
+		int index = 1;
+		while (_sizes[index] == 0)
+			index++;
+
+		int[] entries = _entries[index];
+		int size = _sizes[index];
+
+		// New last key is the minimal key of the bucket
+		_last = _minKeys[index];
+		_sizes[index] = 0;
+
+		// Note: All entries move to buckets below the index
+		for (int i = 0; i < size; i++)
+			add(bucket(entries[i * 2 + 1]), entries[i * 2], entries[i * 2 + 1]);
+	}
+
+	// Bucket of the key (relative to the last polled key)
+	private int bucket(int key) {
+		return 32 - Integer.numberOfLeadingZeros(key ^ _last);
+	}
+
+	private void add(int bucket, int id, int key) {
+
+		int size = _sizes[bucket];
+
+		if (size == 0 || key < _minKeys[bucket])
+			_minKeys[bucket] = key;
+
+		if (size * 2 == _entries[bucket].length)
+			_entries[bucket] = Arrays.copyOf(_entries[bucket], size * 4);
+
+		_entries[bucket][size * 2] = id;
+		_entries[bucket][size * 2 + 1] = key;
+
+		_sizes[bucket] = size + 1;
+	}
+
+
+	// Number of buckets (keys are non-negative, so they differ at most in bit 30)
+	private static final int bucketCount = 32;
+
+	// Initial number of entries of each bucket
+	private static final int initialBucketSize = 16;
+
+	// ID and key of the entries of each bucket
+	private int[][] _entries;
+	private int[] _sizes;
+
+	// Minimal key of each bucket
+	private int[] _minKeys;
+
+	// Total number of entries
+	private int _size;
+
+	// Last polled key (minimal key of bucket 0)
+	private int _last;
+}
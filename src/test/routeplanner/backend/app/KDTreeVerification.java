@@ -1,10 +1,8 @@
 package routeplanner.backend.app;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.util.Random;
 
@@ -14,6 +12,7 @@ import org.junit.jupiter.api.Test;
 
 import routeplanner.backend.app.App.FatalFailure;
 import routeplanner.backend.app.App.Parameters;
+import routeplanner.backend.model.GraphStore;
 import routeplanner.backend.model.Node;
 
 public class KDTreeVerification {
@@ -29,17 +28,18 @@ public class KDTreeVerification {
 
 		param.isTolerant = false;
 		
-		param.structureIn = new BufferedReader(new InputStreamReader(System.getProperty("map") == null
+		param.structureIn = new ByteLineReader(System.getProperty("map") == null
 		    ? KDTreeVerification.class.getResourceAsStream(DEFAULT_TEST_MAP)
-		    : new FileInputStream(System.getProperty("map"))));
+		    : new FileInputStream(System.getProperty("map")));
 		
 		_logger = new Logger(Logger.Level.INFO, new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8")));
 		
 		App app = new App();
-		_nodes = app.readGraph(param, _logger);
+		GraphStore graph = app.readGraph(param, _logger);
+		_nodes = app.nodes();
 		
 		_nextNode = new NextNode();
-		_nextNode.prepare(_nodes);
+		_nextNode.prepare(graph);
 		
 		_nnfResults = new Node[MAX_RESULTS];
 		_nniResults = new Node[MAX_RESULTS];
@@ -0,0 +1,192 @@
+package routeplanner.backend.app;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import routeplanner.backend.app.App.Algorithm;
+import routeplanner.backend.app.App.FatalFailure;
+import routeplanner.backend.app.App.Parameters;
+import routeplanner.backend.model.EdgeCursor;
+import routeplanner.backend.model.GraphStore;
+
+public class PathVerification {
+
+	private static final int DEFAULT_TEST_COUNT = 500;
+	private static final String DEFAULT_TEST_MAP = "/roads.fmi";
+
+	@BeforeAll
+	public static void initialize() throws IOException, FatalFailure {
+
+		_logger = new Logger(Logger.Level.INFO, new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8")));
+		_appLogger = new Logger(Logger.Level.WARNING, new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8")));
+
+		// Prepare all algorithms (like the server)
+		_app = createApp(false, EnumSet.allOf(Algorithm.class));
+
+		// Dijkstra with contracted chains
+		_contractedApp = createApp(true, EnumSet.of(Algorithm.DIJKSTRA));
+
+		_nodeCount = _app.nodes().length;
+		_edges = new EdgeCursor(_graph);
+	}
+
+	// Read the map and prepare the algorithms
+	private static App createApp(boolean isContracted, EnumSet<Algorithm> algorithms) throws IOException, FatalFailure {
+
+		Parameters param = new Parameters();
+
+		param.isTolerant = false;
+		param.isContracted = isContracted;
+		param.algorithms = algorithms;
+
+		param.structureIn = new ByteLineReader(System.getProperty("map") == null
+			? PathVerification.class.getResourceAsStream(DEFAULT_TEST_MAP)
+			: new FileInputStream(System.getProperty("map")));
+
+		App app = new App();
+		_graph = app.readGraph(param, _appLogger);
+
+		app.prepare(param, _appLogger);
+
+		return app;
+	}
+
+	@Test
+	public void testRandomPairs() throws IOException, FatalFailure {
+
+		// Number of random pairs to check (unreachable pairs, one-way and zero-cost edges are part of the map)
+		int cnt = System.getProperty("cnt") == null ? DEFAULT_TEST_COUNT : Integer.parseUnsignedInt(System.getProperty("cnt"));
+
+		Random rand = new Random();
+
+		StringBuilder requests = new StringBuilder();
+		int[][] pairs = new int[cnt][2];
+
+		for (int i = 0; i < cnt; i++) {
+
+			pairs[i][0] = rand.nextInt(_nodeCount);
+			pairs[i][1] = rand.nextInt(_nodeCount);
+
+			requests.append(pairs[i][0] + " " + pairs[i][1] + "\n");
+		}
+
+
+		// Calculate with plain Dijkstra as reference
+
+		int[] reference = calculate(_app, Algorithm.DIJKSTRA, requests.toString(), pairs);
+
+		int unreachable = 0;
+		for (int distance : reference)
+			if (distance < 0)
+				unreachable++;
+
+
+		// Assert results of the other algorithms
+
+		for (Algorithm algorithm : Algorithm.values()) {
+
+			if (algorithm == Algorithm.DIJKSTRA)
+				continue;
+
+			int[] distances = calculate(_app, algorithm, requests.toString(), pairs);
+
+			for (int i = 0; i < cnt; i++)
+				assertEquals(reference[i], distances[i], algorithm + " " + pairs[i][0] + " -> " + pairs[i][1]);
+		}
+
+		int[] contracted = calculate(_contractedApp, Algorithm.DIJKSTRA, requests.toString(), pairs);
+
+		for (int i = 0; i < cnt; i++)
+			assertEquals(reference[i], contracted[i], "contracted " + pairs[i][0] + " -> " + pairs[i][1]);
+
+		_logger.info(cnt + " pairs verified (" + unreachable + " unreachable)");
+	}
+
+	// Calculate the distances of the requests with the algorithm (and check the paths)
+	private static int[] calculate(App app, Algorithm algorithm, String requests, int[][] pairs) throws IOException, FatalFailure {
+
+		int cnt = pairs.length;
+
+		StringWriter out = new StringWriter();
+
+		Parameters param = new Parameters();
+		param.algorithm = algorithm;
+		param.printDistance = true;
+		param.printPath = true;
+		param.requestIn = new ByteLineReader(requests.getBytes(StandardCharsets.UTF_8));
+		param.requestOut = new BufferedWriter(out);
+
+		app.runMultipleDijkstra(param, _appLogger);
+
+		param.requestOut.flush();
+
+		String[] lines = out.toString().split("\n");
+		assertEquals(cnt, lines.length, algorithm + " result count");
+
+		int[] distances = new int[cnt];
+		for (int i = 0; i < cnt; i++) {
+
+			String[] values = lines[i].trim().split(" ");
+			distances[i] = Integer.parseInt(values[0]);
+
+			if (distances[i] >= 0)
+				checkPath(values, pairs[i], algorithm + " " + pairs[i][0] + " -> " + pairs[i][1]);
+		}
+
+		return distances;
+	}
+
+	// Check the printed path ([distance] ([nodeID] [distance])* from the target back to the start)
+	//   Each node has to be reached by an edge of the graph from the node before with the difference of the distances
+	private static void checkPath(String[] values, int[] pair, String message) {
+
+		int count = (values.length - 1) / 2;
+
+		assertEquals(pair[1], Integer.parseInt(values[1]), message + " path target");
+		assertEquals(Integer.parseInt(values[0]), Integer.parseInt(values[2]), message + " path distance");
+		assertEquals(pair[0], Integer.parseInt(values[count * 2 - 1]), message + " path start");
+		assertEquals(0, Integer.parseInt(values[count * 2]), message + " path start distance");
+
+		for (int i = count - 1; i > 0; i--) {
+
+			int source = _graph.internalId(Integer.parseInt(values[i * 2 + 1]));
+			int target = _graph.internalId(Integer.parseInt(values[i * 2 - 1]));
+			int cost = Integer.parseInt(values[i * 2]) - Integer.parseInt(values[i * 2 + 2]);
+
+			boolean isEdge = false;
+			for (_edges.reset(source); _edges.next() && !isEdge; )
+				isEdge = _edges.target() == target && _edges.cost() == cost;
+
+			assertTrue(isEdge, message + " path edge " + values[i * 2 + 1] + " -> " + values[i * 2 - 1]);
+		}
+	}
+
+
+	private static App _app;
+
+	// App with contracted chains (only Dijkstra)
+	private static App _contractedApp;
+
+	private static GraphStore _graph;
+
+	// Iterator over the edges of the graph (to check the paths)
+	private static EdgeCursor _edges;
+
+	private static int _nodeCount;
+
+	private static Logger _logger;
+
+	// Logger of the calculations (only warnings)
+	private static Logger _appLogger;
+}
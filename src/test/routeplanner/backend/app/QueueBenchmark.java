@@ -0,0 +1,100 @@
+package routeplanner.backend.app;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import routeplanner.backend.app.App.FatalFailure;
+import routeplanner.backend.app.App.Parameters;
+import routeplanner.backend.model.GraphStore;
+import routeplanner.backend.model.IntQueue;
+
+public class QueueBenchmark {
+
+	private static final int DEFAULT_TEST_COUNT = 20;
+	private static final String DEFAULT_TEST_MAP = "/toy.fmi";
+
+	@BeforeAll
+	public static void initialize() throws IOException, FatalFailure {
+
+		Parameters param = new Parameters();
+
+		param.isTolerant = false;
+
+		param.structureIn = new ByteLineReader(System.getProperty("map") == null
+			? QueueBenchmark.class.getResourceAsStream(DEFAULT_TEST_MAP)
+			: new FileInputStream(System.getProperty("map")));
+
+		_logger = new Logger(Logger.Level.INFO, new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8")));
+
+		App app = new App();
+		_graph = app.readGraph(param, _logger);
+
+		// Dijkstra with each type of priority queue
+		_dijkstras = new Dijkstra[IntQueue.Type.values().length];
+
+		for (IntQueue.Type type : IntQueue.Type.values()) {
+
+			_dijkstras[type.ordinal()] = new Dijkstra(type);
+			_dijkstras[type.ordinal()].prepare(_graph);
+		}
+	}
+
+	@Test
+	public void testRandomSources() throws IOException {
+
+		// Number of random sources to calculate (all nodes are finished)
+		int cnt = System.getProperty("cnt") == null ? DEFAULT_TEST_COUNT : Integer.parseUnsignedInt(System.getProperty("cnt"));
+
+		Random rand = new Random();
+
+		long[] sums = new long[_dijkstras.length];
+
+		for (int i = 0; i < cnt; i++) {
+
+			int source = rand.nextInt(_graph.nodeCount());
+
+			for (int j = 0; j < _dijkstras.length; j++) {
+
+				_dijkstras[j].reset();
+
+				long startTime = System.nanoTime();
+
+				_dijkstras[j].calculate(source);
+
+				sums[j] += System.nanoTime() - startTime;
+			}
+
+
+			// Assert results (first queue as reference)
+
+			for (int j = 1; j < _dijkstras.length; j++) {
+
+				assertEquals(_dijkstras[0].finishedCount(), _dijkstras[j].finishedCount());
+
+				for (int node = 0; node < _graph.nodeCount(); node++)
+					assertEquals(_dijkstras[0].finishedDistance(node), _dijkstras[j].finishedDistance(node));
+			}
+		}
+
+
+		// Output time results
+
+		for (IntQueue.Type type : IntQueue.Type.values())
+			_logger.info("Average time " + type + ": " + (double)sums[type.ordinal()] / cnt / 1000000 + " ms");
+	}
+
+
+	private static GraphStore _graph;
+
+	// Dijkstra of each type of priority queue (by ordinal)
+	private static Dijkstra[] _dijkstras;
+
+	private static Logger _logger;
+}